@@ -0,0 +1,201 @@
+package org.example.museum.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.museum.MuseumApplication;
+import org.example.museum.repository.ProductRepository;
+import org.example.museum.service.CatalogColumns;
+import org.example.museum.service.CatalogStatistics;
+import org.example.museum.service.CatalogStatisticsService;
+import org.example.museum.service.ProductJsonCache;
+import org.example.museum.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки горячих путей каталога на встроенной базе H2.
+ * <p>
+ * Размер каталога задается параметром {@code catalogSize}; по умолчанию задача {@code gradle jmh} прогоняет
+ * 1 тыс., 100 тыс. и 1 млн строк (переопределяется свойством {@code -PcatalogSizes=1000,100000}).
+ * Профилировщик {@code gc} добавляет к результатам скорость выделения памяти.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    private static final int CATEGORIES = 20;
+    private static final int INSERT_BATCH = 10_000;
+    private static final String USERNAME = "benchmark";
+    private static final int STATISTICS_THREADS = 8;
+
+    @Param({"1000"})
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductService productService;
+    private UserDetailsService userDetailsService;
+    private ObjectMapper objectMapper;
+    private CatalogStatisticsService catalogStatisticsService;
+    private CatalogColumns catalogColumns;
+
+    /**
+     * Число потоков подсчета статистики каталога.
+     */
+    @State(Scope.Benchmark)
+    public static class StatisticsThreads {
+        @Param({"1", "2", "4", "8"})
+        private int threads;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Аргументы командной строки переопределяют application.properties
+        context = new SpringApplicationBuilder(MuseumApplication.class)
+                .run("--spring.main.web-application-type=none",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--museum.stats.parallelism=" + STATISTICS_THREADS,
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.org.springframework.security.web.authentication=WARN",
+                        "--logging.level.org.springframework.security.authentication=WARN");
+        productRepository = context.getBean(ProductRepository.class);
+        productService = context.getBean(ProductService.class);
+        userDetailsService = context.getBean(UserDetailsService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        catalogStatisticsService = context.getBean(CatalogStatisticsService.class);
+        catalogColumns = context.getBean(CatalogColumns.class);
+        seed(context.getBean(JdbcTemplate.class), context.getBean(PasswordEncoder.class));
+        productService.loadIndexes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Поиск запросом {@code CONCAT ... LIKE} в базе данных.
+     */
+    @Benchmark
+    public List<?> searchRepository() {
+        return productRepository.search("Художник 7");
+    }
+
+    /**
+     * Поиск по триграммному индексу с готовым JSON найденных продуктов, как в {@code GET /api/products?keyword=}.
+     */
+    @Benchmark
+    public byte[] searchIndex() throws Exception {
+        return writeArray(productService.searchJson("Художник 7"));
+    }
+
+    /**
+     * Гистограмма количества по датам поставки за последние 14 дней.
+     */
+    @Benchmark
+    public Map<LocalDate, Long> histogram() {
+        return productService.getProductsCountByDeliveryDate();
+    }
+
+    /**
+     * Загрузка и сериализация в JSON всего каталога сущностями {@link org.example.museum.model.Product}.
+     */
+    @Benchmark
+    public byte[] findAllSerialization() throws Exception {
+        return objectMapper.writeValueAsBytes(productRepository.findAll());
+    }
+
+    /**
+     * Ответ со всем каталогом из готового JSON кратких представлений, как в {@code GET /api/products}.
+     */
+    @Benchmark
+    public byte[] findAllSummariesSerialization() throws Exception {
+        return writeArray(productService.findAllJson());
+    }
+
+    /**
+     * Статистика всего каталога, как в {@code GET /api/products/stats}, при разном числе потоков подсчета.
+     */
+    @Benchmark
+    public CatalogStatistics statistics(StatisticsThreads statisticsThreads) {
+        return catalogStatisticsService.compute(20, statisticsThreads.threads);
+    }
+
+    /**
+     * Итоги по категориям за полгода поставок по поколоночному снимку, как в {@code GET /api/products/analytics}.
+     */
+    @Benchmark
+    public CatalogColumns.Summary columnsAnalytics() {
+        LocalDate today = LocalDate.now();
+        return catalogColumns.summarize(CatalogColumns.DateField.DELIVERY, today.minusDays(180), today, null);
+    }
+
+    /**
+     * Загрузка учетных данных пользователя, как при каждой аутентификации.
+     */
+    @Benchmark
+    public UserDetails userDetailsLookup() {
+        return userDetailsService.loadUserByUsername(USERNAME);
+    }
+
+    /**
+     * Записывает JSON-массив из записей кэша, как тело ответа контроллера.
+     */
+    private static byte[] writeArray(List<ProductJsonCache.CachedRow> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProductJsonCache.writeArray(out, rows);
+        return out.toByteArray();
+    }
+
+    private void seed(JdbcTemplate jdbc, PasswordEncoder passwordEncoder) {
+        for (int i = 0; i < CATEGORIES; i++) {
+            jdbc.update("INSERT INTO category (name) VALUES (?)", "Категория " + i);
+        }
+        List<Long> categoryIds = jdbc.queryForList("SELECT id FROM category ORDER BY id", Long.class);
+
+        LocalDate today = LocalDate.now();
+        for (int from = 0; from < catalogSize; from += INSERT_BATCH) {
+            int to = Math.min(from + INSERT_BATCH, catalogSize);
+            List<Object[]> rows = new java.util.ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                rows.add(new Object[]{
+                        "Экспонат " + i,
+                        "Художник " + (i % 1000),
+                        Date.valueOf(today.minusYears(i % 300)),
+                        categoryIds.get(i % CATEGORIES),
+                        "Мастерская " + (i % 100),
+                        1 + i % 5,
+                        Date.valueOf(today.minusDays(i % 365))});
+            }
+            jdbc.batchUpdate("INSERT INTO product (name, artist, creation_date, category_id, manufacturer, quantity, "
+                    + "delivery_date) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+
+        jdbc.update("INSERT INTO role (name) VALUES ('ROLE_USER')");
+        jdbc.update("INSERT INTO user (name, username, password, email) VALUES (?, ?, ?, ?)",
+                "Benchmark", USERNAME, passwordEncoder.encode("benchmark"), "benchmark@example.org");
+        jdbc.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM user u, role r");
+    }
+}
@@ -2,13 +2,15 @@ package org.example.museum;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Главный класс приложения для старта Spring Boot приложения.
  * Включает аннотацию {@link SpringBootApplication}, которая активирует автоконфигурацию Spring Boot
- * и сканирование компонентов.
+ * и сканирование компонентов, а также выполнение периодических задач ({@link EnableScheduling}).
  */
 @SpringBootApplication
+@EnableScheduling
 public class MuseumApplication {
 
     /**
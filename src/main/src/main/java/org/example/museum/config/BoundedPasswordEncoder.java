@@ -0,0 +1,148 @@
+package org.example.museum.config;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кодировщик паролей, выполняющий хэширование в отдельном ограниченном пуле потоков.
+ * <p>
+ * BCrypt намеренно дорог по CPU. Пул ограничивает число одновременных хэширований, а очередь — число
+ * ожидающих запросов. Когда очередь заполнена, запрос сразу отклоняется с
+ * {@link PasswordHashingRejectedException}, а не занимает поток сервлет-контейнера в ожидании.
+ * Поэтому всплеск регистраций или входов не вытесняет дешевые запросы к каталогу.
+ * </p>
+ * <p>
+ * Поток сервлет-контейнера, чья задача попала в очередь, ждет результата не дольше {@code maxWait}.
+ * Если хэширование не завершилось за это время, задача убирается из очереди (уже начатое хэширование
+ * доводится до конца), а запрос отклоняется тем же исключением. Так очередь остается достаточно длинной,
+ * чтобы сгладить короткий всплеск, но каждый из ожидающих потоков занят не дольше {@code maxWait}.
+ * </p>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Создает кодировщик с пулом фиксированного размера.
+     *
+     * @param delegate кодировщик, выполняющий хэширование
+     * @param threads число потоков пула
+     * @param queueCapacity максимальное число ожидающих задач
+     * @param maxWait наибольшее время ожидания результата вызывающим потоком
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration maxWait) {
+        this.delegate = delegate;
+        this.maxWaitNanos = maxWait.toNanos();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Проверяет, нужно ли перехэшировать пароль (например, после изменения стоимости BCrypt).
+     * Проверка разбирает только заголовок хэша и выполняется в вызывающем потоке.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Возвращает метрики пула: глубину очереди, число выполненных задач, задач, отклоненных при полной очереди
+     * и по истечении времени ожидания, и время хэширования.
+     *
+     * @return карта "название метрики — значение"
+     */
+    public Map<String, Object> stats() {
+        long count = completed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("completed", count);
+        stats.put("rejected", rejected.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("meanMillis", count == 0 ? 0.0 : totalNanos.sum() / (double) count / 1_000_000);
+        stats.put("maxMillis", maxNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * Останавливает пул при закрытии контекста приложения.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timed(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException();
+        }
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            executor.purge();
+            timedOut.increment();
+            throw new PasswordHashingRejectedException("Хэширование пароля не завершилось за допустимое время");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Хэширование пароля прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> T timed(Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            completed.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.museum.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Конфигурация локальных кэшей приложения.
+ * <p>
+ * Все кэши ограничены по размеру и собирают статистику попаданий, промахов и вытеснений,
+ * которая доступна через {@code /api/metrics/caches}.
+ * </p>
+ * <p>
+ * Категории здесь не кэшируются: они хранятся только в кэше второго уровня Hibernate (регион
+ * {@value org.example.museum.model.Category#CACHE_REGION}) и в кэше запросов для списка всех категорий.
+ * Кэши Hibernate сбрасываются при любом изменении через JPA, а второй кэш тех же данных
+ * со своим сбросом мог бы расходиться с ними.
+ * </p>
+ * <p>
+ * Регионы кэша второго уровня Hibernate хранятся в менеджере JCache, который принадлежит контексту приложения
+ * (см. {@link #secondLevelCacheManager()}).
+ * </p>
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Кэш учетных данных пользователей для аутентификации.
+     */
+    public static final String PRINCIPALS = "principals";
+
+    /**
+     * Бин менеджера кэшей на основе Caffeine.
+     * Набор кэшей фиксирован: обращение к незарегистрированному кэшу считается ошибкой конфигурации.
+     *
+     * @param principalsMaximumSize максимальное число пользователей в кэше учетных данных
+     * @param principalsTtl время жизни записи в кэше учетных данных
+     * @return CacheManager с зарегистрированными кэшами
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${museum.cache.principals.maximum-size:10000}") long principalsMaximumSize,
+                                     @Value("${museum.cache.principals.ttl:5m}") Duration principalsTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(PRINCIPALS, Caffeine.newBuilder()
+                .maximumSize(principalsMaximumSize)
+                .expireAfterWrite(principalsTtl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+
+    /**
+     * Настройка Hibernate, передающая кэшу второго уровня собственный менеджер JCache.
+     * <p>
+     * Без нее Hibernate берет у провайдера Caffeine менеджер по URI конфигурации, общий для всей JVM,
+     * и закрывает его вместе со своей фабрикой сессий. Несколько контекстов в одной JVM (тесты, перезапуск
+     * devtools) делили бы тогда одни регионы, а закрытие любого из них ломало бы кэш остальных.
+     * Менеджер с уникальным URI принадлежит только этому контексту; настройки регионов провайдер
+     * по-прежнему читает из {@code application.conf}.
+     * </p>
+     *
+     * @return HibernatePropertiesCustomizer с менеджером кэшей второго уровня
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManager() {
+        return properties -> {
+            CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+            URI uri = URI.create("museum:second-level-cache:" + UUID.randomUUID());
+            properties.put(ConfigSettings.CACHE_MANAGER, provider.getCacheManager(uri, provider.getDefaultClassLoader()));
+        };
+    }
+}
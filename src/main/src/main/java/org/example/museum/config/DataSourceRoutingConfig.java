@@ -0,0 +1,112 @@
+package org.example.museum.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Конфигурация разделения чтения и записи между основной базой и репликами.
+ * <p>
+ * Включается свойством {@code museum.datasource.routing.enabled=true}. Основная база настраивается
+ * как обычно через {@code spring.datasource.*}, реплики перечисляются через запятую
+ * в {@code museum.datasource.routing.replicas}; настройки пула {@code spring.datasource.hikari.*}
+ * применяются ко всем пулам. Транзакции {@code @Transactional(readOnly = true)} выполняются на репликах,
+ * остальные запросы — на основной базе (см. {@link ReadWriteRoutingDataSource}). Методы, заполняющие общие кэши
+ * Hibernate, читают с основной базы, чтобы отставание реплик не попадало в кэш.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "museum.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    /**
+     * Бин маршрутизирующего источника данных с пулами основной базы и реплик.
+     *
+     * @param properties настройки основной базы
+     * @param environment окружение для привязки настроек пула
+     * @param replicaUrls JDBC URL реплик
+     * @param replicaUsername имя пользователя реплик
+     * @param replicaPassword пароль реплик
+     * @param readYourWrites окно чтения из основной базы после записи клиента
+     * @param maximumClients максимальное число клиентов, для которых отслеживается окно
+     * @return ReadWriteRoutingDataSource, закрывающий пулы при остановке приложения
+     */
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            DataSourceProperties properties, Environment environment,
+            @Value("${museum.datasource.routing.replicas}") String[] replicaUrls,
+            @Value("${museum.datasource.routing.replica-username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${museum.datasource.routing.replica-password:${spring.datasource.password:}}") String replicaPassword,
+            @Value("${museum.datasource.routing.read-your-writes:5s}") Duration readYourWrites,
+            @Value("${museum.datasource.routing.clients.maximum-size:10000}") long maximumClients) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configurePool(primary, environment, "primary");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build();
+            configurePool(replica, environment, "replica-" + (replicas.size() + 1));
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas, readYourWrites, maximumClients);
+    }
+
+    /**
+     * Бин источника данных приложения.
+     * <p>
+     * Соединение берется при первом запросе, а не в начале транзакции, поэтому маршрутизация
+     * учитывает признак {@code readOnly} транзакции.
+     * </p>
+     *
+     * @param routingDataSource маршрутизирующий источник данных
+     * @return DataSource, используемый JPA и JdbcTemplate
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Настройка Hibernate, возвращающая соединение после каждой транзакции.
+     * <p>
+     * По умолчанию сессия удерживает соединение до закрытия, а при Open Session in View сессия живет
+     * весь HTTP-запрос: пишущая транзакция после читающей получила бы соединение с репликой.
+     * </p>
+     *
+     * @return HibernatePropertiesCustomizer с режимом освобождения соединения после транзакции
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private static void configurePool(HikariDataSource dataSource, Environment environment, String poolName) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.museum.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+/**
+ * Конфигурация метрик задержек.
+ * <p>
+ * Spring Boot Actuator сам измеряет каждый запрос к контроллерам ({@code http.server.requests}) и каждый вызов
+ * репозиториев Spring Data ({@code spring.data.repository.invocations}). Для запросов дополнительно ведется
+ * таймер маршрута без разбиения по исходу ({@link RouteTimerObservationHandler}). Процентили для таймеров
+ * маршрутов и репозиториев включаются в {@code application.properties}.
+ * </p>
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Таймеры, которые сводит MetricsController
+    private static final Set<String> SUMMARIZED_METERS = Set.of("http.server.requests", "spring.data.repository.invocations");
+
+    /**
+     * Бин таймера задержек по маршрутам.
+     *
+     * @param meterRegistry реестр метрик
+     * @return RouteTimerObservationHandler, который Spring Boot регистрирует в ObservationRegistry
+     */
+    @Bean
+    public RouteTimerObservationHandler routeTimerObservationHandler(MeterRegistry meterRegistry) {
+        return new RouteTimerObservationHandler(meterRegistry);
+    }
+
+    /**
+     * Фильтр, убирающий из таймеров запросов и вызовов репозиториев теги конкретного статуса и исключения.
+     * <p>
+     * Сводка MetricsController складывает эти таймеры по маршруту или методу и различает только исход
+     * ({@code outcome} или {@code state}), а без фильтра каждый код ответа и тип исключения образует отдельный
+     * таймер. Остальные метрики приложения фильтр не затрагивает.
+     * </p>
+     *
+     * @return MeterFilter, игнорирующий теги status, exception и error у {@code http.server.requests}
+     *         и {@code spring.data.repository.invocations}
+     */
+    @Bean
+    public MeterFilter ignoreStatusTags() {
+        MeterFilter ignoreTags = MeterFilter.ignoreTags("status", "exception", "error");
+        return new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                return SUMMARIZED_METERS.contains(id.getName()) ? ignoreTags.map(id) : id;
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.museum.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+/**
+ * Исключение, выбрасываемое, когда пул хэширования паролей перегружен.
+ * <p>
+ * Запрос отклоняется со статусом 503 (Service Unavailable), если очередь пула заполнена или хэширование
+ * не завершилось за допустимое время ожидания, чтобы клиент повторил его позже, а поток сервлет-контейнера
+ * не простаивал в ожидании. В обработчиках MVC статус задает аннотация.
+ * При входе исключение выбрасывается из проверки пароля внутри фильтров Spring Security, поэтому оно
+ * является {@link AuthenticationServiceException}: фильтры входа передают его обработчикам,
+ * которые {@link SecurityConfig} настраивает отвечать 503 с заголовком Retry-After.
+ * </p>
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Сервис временно перегружен, повторите попытку позже")
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Создает исключение с сообщением по умолчанию.
+     */
+    public PasswordHashingRejectedException() {
+        this("Очередь хэширования паролей заполнена");
+    }
+
+    /**
+     * Создает исключение с указанным сообщением.
+     *
+     * @param message причина отказа
+     */
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.museum.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Map;
+
+/**
+ * Конфигурация ограничения частоты запросов к дорогим маршрутам.
+ * <p>
+ * Включается свойством {@code museum.rate-limit.enabled=true}. Бюджеты маршрутов задаются свойствами
+ * {@code museum.rate-limit.routes.<имя>.*} (см. {@link RateLimitInterceptor.Route}), например:
+ * <pre>
+ * museum.rate-limit.routes.histogram.path=/api/products/histogram
+ * museum.rate-limit.routes.histogram.requests=10
+ * museum.rate-limit.routes.histogram.period=1s
+ * </pre>
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "museum.rate-limit.enabled", havingValue = "true")
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    // Бин объявлен в этой же конфигурации, поэтому берется при регистрации перехватчиков, а не внедряется в поле
+    @Autowired
+    private ObjectProvider<RateLimitInterceptor> rateLimitInterceptor;
+
+    /**
+     * Бин ограничения частоты запросов с бюджетами маршрутов из настроек.
+     *
+     * @param environment окружение для привязки бюджетов маршрутов
+     * @param maximumClients наибольшее число отслеживаемых клиентов на маршрут
+     * @param meterRegistry реестр для счетчиков отказов
+     * @return RateLimitInterceptor
+     */
+    @Bean
+    public RateLimitInterceptor rateLimitInterceptor(
+            Environment environment,
+            @Value("${museum.rate-limit.clients.maximum-size:100000}") long maximumClients,
+            MeterRegistry meterRegistry) {
+        Map<String, RateLimitInterceptor.Route> routes = Binder.get(environment)
+                .bind("museum.rate-limit.routes", Bindable.mapOf(String.class, RateLimitInterceptor.Route.class))
+                .orElse(Map.of());
+        return new RateLimitInterceptor(routes, maximumClients, meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor.getObject()).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.museum.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение частоты запросов к дорогим маршрутам REST API для каждого клиента.
+ * <p>
+ * Клиент — аутентифицированный пользователь (по имени из {@link Principal}) или, для анонимных запросов,
+ * IP-адрес. Для каждого маршрута задается бюджет: {@code requests} запросов за {@code period}
+ * с допустимым всплеском до {@code burst} запросов подряд. Запрос сверх бюджета отклоняется
+ * со статусом 429 (Too Many Requests) и заголовком Retry-After, а отказ учитывается счетчиком
+ * {@value #REJECTED_METER} с тегом маршрута.
+ * <p>
+ * Бюджет ведется по алгоритму GCRA — эквиваленту маркерной корзины, состояние которого — одно число:
+ * теоретическое время прибытия следующего запроса. Оно хранится в {@link AtomicLong} клиента
+ * и обновляется сравнением с обменом, без блокировок. Корзины клиентов лежат в кэше Caffeine,
+ * чтение которого тоже не блокируется, поэтому разные клиенты не конкурируют между собой.
+ * Корзина удаляется, если клиент не обращался к маршруту дольше, чем нужно для ее полного
+ * восполнения: после этого она ничем не отличается от новой.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    /**
+     * Имя счетчика отклоненных запросов.
+     */
+    public static final String REJECTED_METER = "museum.rate.limit.rejected";
+
+    /**
+     * Бюджет запросов маршрута.
+     *
+     * @param path шаблон пути маршрута, например {@code /api/products/{id}}
+     * @param methods HTTP-методы, к которым применяется бюджет; пустой список — все методы
+     * @param params параметры запроса, хотя бы один из которых должен быть задан; пустой список — любые запросы
+     * @param requests число запросов за период
+     * @param period период восполнения бюджета
+     * @param burst наибольшее число запросов подряд; 0 — равно {@code requests}
+     */
+    public record Route(String path,
+                        @DefaultValue List<String> methods,
+                        @DefaultValue List<String> params,
+                        long requests,
+                        @DefaultValue("1s") Duration period,
+                        long burst) {
+    }
+
+    /**
+     * Бюджет маршрута и корзины его клиентов.
+     */
+    private static final class Limit {
+        final String name;
+        final Route route;
+        final PathPattern pattern;
+        final long intervalNanos;
+        final long toleranceNanos;
+        final Cache<String, AtomicLong> clients;
+        final Counter rejected;
+
+        Limit(String name, Route route, long maximumClients, MeterRegistry meterRegistry) {
+            if (route.path() == null || route.requests() < 1 || route.period().isZero() || route.period().isNegative()) {
+                throw new IllegalArgumentException("Некорректный бюджет маршрута " + name + ": " + route);
+            }
+            long burst = route.burst() > 0 ? route.burst() : route.requests();
+            this.name = name;
+            this.route = route;
+            this.pattern = PathPatternParser.defaultInstance.parse(route.path());
+            this.intervalNanos = Math.max(1, route.period().toNanos() / route.requests());
+            this.toleranceNanos = Math.multiplyExact(intervalNanos, burst);
+            this.clients = Caffeine.newBuilder()
+                    .expireAfterAccess(toleranceNanos, TimeUnit.NANOSECONDS)
+                    .maximumSize(maximumClients)
+                    .build();
+            this.rejected = Counter.builder(REJECTED_METER)
+                    .description("Запросы, отклоненные ограничением частоты")
+                    .tag("route", name)
+                    .register(meterRegistry);
+        }
+
+        boolean matches(HttpServletRequest request, PathContainer path) {
+            if (!route.methods().isEmpty() && route.methods().stream().noneMatch(request.getMethod()::equalsIgnoreCase)) {
+                return false;
+            }
+            if (!route.params().isEmpty() && route.params().stream().noneMatch(p -> request.getParameter(p) != null)) {
+                return false;
+            }
+            return pattern.matches(path);
+        }
+
+        /**
+         * Расходует запрос из корзины клиента.
+         *
+         * @return 0, если запрос разрешен, иначе время в наносекундах до освобождения места в корзине
+         */
+        long acquire(String client) {
+            AtomicLong arrival = clients.get(client, key -> new AtomicLong(Long.MIN_VALUE));
+            long now = System.nanoTime();
+            while (true) {
+                long expected = arrival.get();
+                long next = Math.max(expected, now) + intervalNanos;
+                long wait = next - now - toleranceNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (arrival.compareAndSet(expected, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private final List<Limit> limits = new ArrayList<>();
+
+    /**
+     * Создает ограничение для маршрутов.
+     *
+     * @param routes бюджеты по именам маршрутов; если путь запроса подходит к нескольким маршрутам,
+     *               расходуется бюджет первого из них
+     * @param maximumClients наибольшее число отслеживаемых клиентов на маршрут
+     * @param meterRegistry реестр для счетчиков отказов
+     * @throws IllegalArgumentException если бюджет маршрута задан неверно
+     */
+    public RateLimitInterceptor(Map<String, Route> routes, long maximumClients, MeterRegistry meterRegistry) {
+        routes.forEach((name, route) -> limits.add(new Limit(name, route, maximumClients, meterRegistry)));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Асинхронная и повторная обработка того же запроса не расходует бюджет повторно
+        if (request.getDispatcherType() != DispatcherType.REQUEST || limits.isEmpty()) {
+            return true;
+        }
+        PathContainer path = ServletRequestPathUtils.hasParsedRequestPath(request)
+                ? ServletRequestPathUtils.getParsedRequestPath(request).pathWithinApplication()
+                : ServletRequestPathUtils.parseAndCache(request).pathWithinApplication();
+        for (Limit limit : limits) {
+            if (limit.matches(request, path)) {
+                long wait = limit.acquire(client(request));
+                if (wait == 0) {
+                    return true;
+                }
+                limit.rejected.increment();
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                // Целое число секунд, округленное вверх
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает бюджеты маршрутов, число отслеживаемых клиентов и отклоненных запросов.
+     *
+     * @return карта "имя маршрута — показатели"
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Limit limit : limits) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("path", limit.route.path());
+            values.put("requests", limit.route.requests());
+            values.put("period", limit.route.period().toString());
+            values.put("burst", limit.toleranceNanos / limit.intervalNanos);
+            values.put("clients", limit.clients.estimatedSize());
+            values.put("rejected", (long) limit.rejected.count());
+            result.put(limit.name, values);
+        }
+        return result;
+    }
+
+    private static String client(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.museum.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник данных, направляющий транзакции только для чтения на реплики, а остальные запросы — на основную базу.
+ * <p>
+ * Реплики выбираются по кругу. После фиксации пишущей транзакции клиент (пользователь, а до входа — HTTP-сессия)
+ * в течение окна {@code readYourWrites} читает из основной базы, чтобы увидеть свои изменения
+ * до того, как они дойдут до реплик. Запись вне транзакции окно не открывает.
+ * <p>
+ * Реплики могут отставать, поэтому на них не должны выполняться чтения, заполняющие общие кэши
+ * (кэш второго уровня и кэш запросов Hibernate): такие методы работают в обычных транзакциях на основной базе.
+ * Промах кэша в такой транзакции, как и запись, открывает клиенту окно чтения из основной базы.
+ * <p>
+ * Выбор делается при получении соединения, поэтому источник нужно оборачивать
+ * в {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: тогда соединение берется
+ * при первом запросе, когда признак {@code readOnly} транзакции уже известен.
+ */
+public final class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final String[] replicaKeys;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Cache<String, Boolean> recentWriters;
+
+    /**
+     * Создает источник данных.
+     *
+     * @param primary пул соединений основной базы.
+     * @param replicas пулы соединений реплик, не менее одного.
+     * @param readYourWrites окно, в течение которого клиент после своей записи читает из основной базы.
+     * @param maximumClients максимальное число отслеживаемых клиентов.
+     */
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                      Duration readYourWrites, long maximumClients) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("Не задано ни одной реплики");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.replicaKeys = new String[replicas.size()];
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaKeys[i] = "replica-" + (i + 1);
+            targets.put(replicaKeys[i], replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterWrite(readYourWrites)
+                .build();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String client = currentClient();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (client != null && TransactionSynchronizationManager.isActualTransactionActive()
+                    && TransactionSynchronizationManager.isSynchronizationActive()) {
+                recordWriteAfterCommit(client);
+            }
+            return PRIMARY;
+        }
+        if (client != null && recentWriters.getIfPresent(client) != null) {
+            return PRIMARY;
+        }
+        return replicaKeys[Math.floorMod(next.getAndIncrement(), replicaKeys.length)];
+    }
+
+    /**
+     * Закрывает пулы соединений основной базы и реплик.
+     */
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+
+    private void recordWriteAfterCommit(String client) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(client, Boolean.TRUE);
+            }
+        });
+    }
+
+    /**
+     * Определяет клиента текущего запроса: имя аутентифицированного пользователя
+     * или, для анонимного запроса, идентификатор существующей HTTP-сессии.
+     */
+    private static String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpSession session = attributes.getRequest().getSession(false);
+            if (session != null) {
+                return "session:" + session.getId();
+            }
+        }
+        return null;
+    }
+}
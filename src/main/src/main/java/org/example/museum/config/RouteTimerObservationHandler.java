@@ -0,0 +1,61 @@
+package org.example.museum.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+/**
+ * Таймер задержек HTTP-запросов по маршруту без разбиения по статусу и исходу ответа.
+ * <p>
+ * Таймеры {@code http.server.requests} разделены по исходу: на маршрутах с ETag ответы 200 и 304
+ * попадают в разные таймеры со своими гистограммами, а процентили разных гистограмм не складываются.
+ * Этот обработчик измеряет те же запросы и записывает все ответы маршрута, кроме 5xx, в один таймер
+ * {@value #METER} с тегами {@code method} и {@code uri}. Теги берутся у наблюдения Spring MVC в момент
+ * его завершения, поэтому совпадают с тегами {@code http.server.requests}.
+ */
+public class RouteTimerObservationHandler implements ObservationHandler<ServerRequestObservationContext> {
+
+    /**
+     * Имя таймера задержек маршрутов.
+     */
+    public static final String METER = "museum.http.routes";
+
+    // Ключ начатого замера в контексте наблюдения; Timer.Sample.class уже занят обработчиком Micrometer
+    private static final String SAMPLE = RouteTimerObservationHandler.class.getName() + ".sample";
+
+    private final MeterRegistry meterRegistry;
+
+    public RouteTimerObservationHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onStart(ServerRequestObservationContext context) {
+        context.put(SAMPLE, Timer.start(meterRegistry));
+    }
+
+    @Override
+    public void onStop(ServerRequestObservationContext context) {
+        Timer.Sample sample = context.get(SAMPLE);
+        if (sample == null || "SERVER_ERROR".equals(value(context, "outcome"))) {
+            return;
+        }
+        sample.stop(Timer.builder(METER)
+                .tag("method", value(context, "method"))
+                .tag("uri", value(context, "uri"))
+                .register(meterRegistry));
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof ServerRequestObservationContext;
+    }
+
+    private static String value(ServerRequestObservationContext context, String key) {
+        KeyValue keyValue = context.getLowCardinalityKeyValue(key);
+        return keyValue != null ? keyValue.getValue() : "UNKNOWN";
+    }
+}
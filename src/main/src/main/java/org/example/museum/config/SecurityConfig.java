@@ -3,22 +3,38 @@ package org.example.museum.config;
 import org.example.museum.model.User;
 import org.example.museum.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.config.ObjectPostProcessor;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.time.Duration;
+
 /**
  * Конфигурация безопасности приложения.
  * <p>
@@ -46,33 +62,150 @@ public class SecurityConfig {
 
     /**
      * Бин для кодирования паролей с использованием BCrypt.
+     * <p>
+     * Хэширование и проверка паролей выполняются в отдельном ограниченном пуле потоков,
+     * см. {@link BoundedPasswordEncoder}.
+     * </p>
      *
+     * @param strength стоимость BCrypt (логарифм числа раундов)
+     * @param threads число потоков пула хэширования
+     * @param queueCapacity максимальное число ожидающих задач хэширования
+     * @param maxWait наибольшее время, которое поток запроса ждет результата хэширования
      * @return PasswordEncoder, использующий BCrypt
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(@Value("${museum.security.bcrypt.strength:10}") int strength,
+                                                  @Value("${museum.security.hashing.threads:2}") int threads,
+                                                  @Value("${museum.security.hashing.queue-capacity:64}") int queueCapacity,
+                                                  @Value("${museum.security.hashing.max-wait:1s}") Duration maxWait) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, queueCapacity, maxWait);
+    }
+
+    /**
+     * Цепочка фильтров безопасности: все запросы требуют аутентификации, вход выполняется через форму
+     * или HTTP Basic, как в цепочке Spring Boot по умолчанию.
+     * <p>
+     * Если пул хэширования паролей перегружен и проверка пароля при входе отклонена
+     * {@link PasswordHashingRejectedException}, клиент получает статус 503 с заголовком Retry-After,
+     * а не перенаправление на страницу ошибки входа или 401.
+     * </p>
+     *
+     * @param http построитель цепочки фильтров
+     * @param retryAfter через сколько клиенту повторить вход, отклоненный из-за перегрузки пула хэширования
+     * @return SecurityFilterChain приложения
+     * @throws Exception если цепочку не удалось построить
+     */
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${museum.security.hashing.retry-after:1s}") Duration retryAfter) throws Exception {
+        BasicAuthenticationEntryPoint basicEntryPoint = new BasicAuthenticationEntryPoint();
+        basicEntryPoint.setRealmName("Realm");
+        http.authorizeHttpRequests(requests -> requests.anyRequest().authenticated());
+        http.formLogin(form -> form.withObjectPostProcessor(new ObjectPostProcessor<UsernamePasswordAuthenticationFilter>() {
+            // Обработчик задается фильтру, а не конфигуратору: тогда адрес ошибки входа остается известен
+            // сгенерированной странице входа, и она по-прежнему показывает сообщение об ошибке
+            @Override
+            public <O extends UsernamePasswordAuthenticationFilter> O postProcess(O filter) {
+                filter.setAuthenticationFailureHandler(
+                        loginFailureHandler(new SimpleUrlAuthenticationFailureHandler("/login?error"), retryAfter));
+                return filter;
+            }
+        }));
+        http.httpBasic(basic -> basic.authenticationEntryPoint(loginEntryPoint(basicEntryPoint, retryAfter)));
+        return http.build();
+    }
+
+    private static AuthenticationFailureHandler loginFailureHandler(AuthenticationFailureHandler delegate, Duration retryAfter) {
+        return (request, response, exception) -> {
+            if (!rejectedHashing(exception, response, retryAfter)) {
+                delegate.onAuthenticationFailure(request, response, exception);
+            }
+        };
+    }
+
+    private static AuthenticationEntryPoint loginEntryPoint(AuthenticationEntryPoint delegate, Duration retryAfter) {
+        return (request, response, exception) -> {
+            if (!rejectedHashing(exception, response, retryAfter)) {
+                delegate.commence(request, response, exception);
+            }
+        };
+    }
+
+    /**
+     * Отвечает статусом 503 с заголовком Retry-After, если вход отклонен из-за перегрузки пула хэширования.
+     *
+     * @return true, если ответ записан
+     */
+    private static boolean rejectedHashing(AuthenticationException exception, HttpServletResponse response, Duration retryAfter) {
+        if (!(exception instanceof PasswordHashingRejectedException)) {
+            return false;
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        return true;
+    }
+
+    /**
+     * Бин для обновления хэша пароля при входе.
+     * <p>
+     * Если стоимость BCrypt в конфигурации увеличена, Spring Security после успешной проверки пароля
+     * перехэширует его с новой стоимостью и сохраняет через этот сервис.
+     * </p>
+     *
+     * @return UserDetailsPasswordService, сохраняющий новый хэш пароля пользователя
+     */
+    @Bean
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (user, newPassword) -> {
+            userService.updatePassword(user.getUsername(), newPassword);
+            return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                    .password(newPassword)
+                    .build();
+        };
     }
 
     /**
      * Бин для загрузки данных пользователя по имени пользователя.
      * Используется для аутентификации пользователей.
+     * <p>
+     * Загруженные данные кэшируются в {@link CacheConfig#PRINCIPALS} с ограниченным временем жизни.
+     * {@link UserService} сбрасывает запись при изменении ролей, удалении и регистрации пользователя.
+     * </p>
      *
+     * @param cacheManager менеджер кэшей приложения
      * @return UserDetailsService, который загружает данные пользователя по имени
      */
     @Bean
-    public UserDetailsService userDetailsService() {
+    public UserDetailsService userDetailsService(CacheManager cacheManager) {
+        Cache principals = cacheManager.getCache(CacheConfig.PRINCIPALS);
         return username -> {
-            User user = userService.findByUsername(username);
-            if (user != null) {
-                return new org.springframework.security.core.userdetails.User(
-                        user.getUsername(),
-                        user.getPassword(),
-                        user.getRoles().stream()
-                                .map(role -> new org.springframework.security.core.authority.SimpleGrantedAuthority(role.getName()))
-                                .toList());
+            UserDetails principal;
+            try {
+                principal = principals.get(username, () -> loadPrincipal(username));
+            } catch (Cache.ValueRetrievalException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
             }
-            throw new RuntimeException("User not found");
+            // Возвращаем копию: после аутентификации Spring Security стирает пароль у выданного объекта
+            return org.springframework.security.core.userdetails.User.withUserDetails(principal).build();
         };
     }
+
+    /**
+     * Загружает данные пользователя из базы данных.
+     *
+     * @param username имя пользователя
+     * @return данные пользователя с его ролями
+     */
+    private UserDetails loadPrincipal(String username) {
+        User user = userService.findByUsername(username);
+        if (user != null) {
+            return new org.springframework.security.core.userdetails.User(
+                    user.getUsername(),
+                    user.getPassword(),
+                    user.getRoles().stream()
+                            .map(role -> new org.springframework.security.core.authority.SimpleGrantedAuthority(role.getName()))
+                            .toList());
+        }
+        throw new RuntimeException("User not found");
+    }
 }
@@ -0,0 +1,89 @@
+package org.example.museum.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * Конфигурация раздачи статических ресурсов.
+ * <p>
+ * Ресурсы отдаются по адресам с хешем содержимого в имени файла ({@code /css/style-<md5>.css}),
+ * поэтому такие ответы кэшируются браузером на год без перепроверки: при изменении файла меняется и адрес.
+ * Адреса в шаблонах Thymeleaf ({@code th:href="@{/css/style.css}"}) переписываются автоматически
+ * фильтром {@link ResourceUrlEncodingFilter}. Тот же файл по адресу без хеша (ссылка, записанная
+ * не через шаблон) может измениться, поэтому его ответ браузер перепроверяет при каждом использовании
+ * ({@code no-cache}) и получает 304, пока файл не изменился. Если клиент поддерживает gzip, отдается сжатая при сборке
+ * копия файла ({@code style.css.gz}).
+ * </p>
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Срок хранения статических ресурсов в кэше браузера.
+     */
+    private static final Duration STATIC_MAX_AGE = Duration.ofDays(365);
+
+    private static final CacheControl VERSIONED_CACHE = CacheControl.maxAge(STATIC_MAX_AGE).cachePublic().immutable();
+    private static final CacheControl UNVERSIONED_CACHE = CacheControl.noCache().cachePublic();
+
+    // Хеш содержимого, который VersionResourceResolver добавляет к имени файла: style-<md5>.css
+    private static final Pattern VERSIONED_PATH = Pattern.compile("-[0-9a-f]{32}\\.[^/]*$");
+
+    @Value("${spring.web.resources.static-locations:classpath:/static/}")
+    private String[] staticLocations;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/**")
+                .addResourceLocations(staticLocations)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    /**
+     * Задает заголовок Cache-Control ответов со статическими ресурсами в зависимости от того,
+     * есть ли в адресе хеш содержимого. Обработчик ресурсов сам этот заголовок не задает:
+     * его настройка одна для всех адресов.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (handler instanceof ResourceHttpRequestHandler) {
+                    CacheControl cacheControl = VERSIONED_PATH.matcher(request.getRequestURI()).find()
+                            ? VERSIONED_CACHE : UNVERSIONED_CACHE;
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Бин фильтра, подставляющего в адреса ресурсов хеш содержимого.
+     *
+     * @return ResourceUrlEncodingFilter
+     */
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+}
@@ -1,11 +1,14 @@
 package org.example.museum.controller;
 
 import org.example.museum.model.Category;
-import org.example.museum.repository.CategoryRepository;
+import org.example.museum.service.CatalogVersion;
+import org.example.museum.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
@@ -20,15 +23,25 @@ import java.util.List;
 public class CategoryController {
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private CategoryService categoryService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
 
     /**
-     * Получает все категории из базы данных.
+     * Получает все категории.
+     * Список берется из кэша {@link CategoryService}, база данных запрашивается только после его сброса.
+     * Если каталог не менялся, на запрос с If-None-Match возвращается статус 304 (Not Modified).
      *
+     * @param request текущий запрос для проверки If-None-Match
      * @return список всех категорий, представленных в базе данных
      */
     @GetMapping
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();  // Возвращаем все категории из базы
+    public ResponseEntity<List<Category>> getAllCategories(ServletWebRequest request) {
+        String etag = catalogVersion.etag();
+        if (ConditionalRequests.checkNotModified(request, etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(categoryService.getAllCategories());  // Возвращаем все категории из кэша сервиса
     }
 }
@@ -0,0 +1,32 @@
+package org.example.museum.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Вспомогательные методы для условных GET-запросов по ETag.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Проверяет заголовок If-None-Match запроса.
+     * <p>
+     * Ответ помечается как {@code Cache-Control: no-cache}: браузер сохраняет его, но перед использованием
+     * перепроверяет по ETag. Без этого заголовка Spring Security запрещает сохранение ответа
+     * ({@code no-store}), и условные запросы не отправляются.
+     *
+     * @param request текущий запрос
+     * @param etag ETag актуальной версии данных
+     * @return {@code true}, если данные не изменились и ответ 304 (Not Modified) уже сформирован
+     */
+    static boolean checkNotModified(ServletWebRequest request, String etag) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        }
+        return request.checkNotModified(etag);
+    }
+}
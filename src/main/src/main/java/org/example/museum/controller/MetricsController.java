@@ -0,0 +1,223 @@
+package org.example.museum.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.museum.config.BoundedPasswordEncoder;
+import org.example.museum.config.RateLimitInterceptor;
+import org.example.museum.config.RouteTimerObservationHandler;
+import org.example.museum.service.ProductSuggestIndex;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Контроллер для получения служебных метрик приложения.
+ * <p>
+ * Позволяет проверить эффективность кэшей и других оптимизаций без включения отладочного логирования.
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired(required = false)
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    /**
+     * Получает статистику локальных кэшей.
+     *
+     * @return карта "имя кэша — счетчики попаданий, промахов и вытеснений"
+     */
+    @GetMapping("/caches")
+    public Map<String, Map<String, Object>> getCacheStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                CacheStats stats = cache.getNativeCache().stats();
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("size", cache.getNativeCache().estimatedSize());
+                values.put("hits", stats.hitCount());
+                values.put("misses", stats.missCount());
+                values.put("hitRate", stats.hitRate());
+                values.put("evictions", stats.evictionCount());
+                result.put(name, values);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Получает статистику кэша второго уровня Hibernate.
+     * <p>
+     * Счетчики ведутся с момента запуска приложения.
+     *
+     * @return общие счетчики попаданий и промахов кэша сущностей и кэша запросов,
+     *         а также счетчики по регионам
+     */
+    @GetMapping("/second-level-cache")
+    public Map<String, Object> getSecondLevelCacheStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("entities", hitRate(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        result.put("queries", hitRate(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+        Map<String, Object> regions = new TreeMap<>();
+        for (String name : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region != null) {
+                regions.put(name, hitRate(region.getHitCount(), region.getMissCount(), region.getPutCount()));
+            }
+        }
+        result.put("regions", regions);
+        return result;
+    }
+
+    private static Map<String, Object> hitRate(long hits, long misses, long puts) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("hits", hits);
+        values.put("misses", misses);
+        values.put("puts", puts);
+        values.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return values;
+    }
+
+    /**
+     * Получает метрики пула хэширования паролей.
+     *
+     * @return глубина очереди, число выполненных и отклоненных задач, среднее и максимальное время хэширования
+     */
+    @GetMapping("/password-hashing")
+    public Map<String, Object> getPasswordHashingStats() {
+        return passwordEncoder.stats();
+    }
+
+    /**
+     * Получает показатели ограничения частоты запросов.
+     *
+     * @return карта "маршрут — бюджет, число отслеживаемых клиентов и отклоненных запросов";
+     *         пустая, если ограничение выключено
+     */
+    @GetMapping("/rate-limits")
+    public Map<String, Map<String, Object>> getRateLimitStats() {
+        return rateLimitInterceptor != null ? rateLimitInterceptor.stats() : Map.of();
+    }
+
+    /**
+     * Получает размер индекса подсказок.
+     *
+     * @return число вариантов, узлов дерева, продуктов и оценка занимаемой памяти в байтах
+     */
+    @GetMapping("/suggest")
+    public Map<String, Object> getSuggestIndexStats() {
+        return productSuggestIndex.stats();
+    }
+
+    /**
+     * Получает задержки запросов к REST API по маршрутам.
+     * <p>
+     * Ошибками считаются только ответы 5xx: перенаправления (в том числе 304 при совпадении ETag)
+     * и ошибки клиента (400, 404) — штатные ответы маршрута. Процентили и максимум считаются за последние
+     * минуты (скользящее окно Micrometer) по всем ответам маршрута без ошибки из общего таймера маршрута
+     * {@value RouteTimerObservationHandler#METER}, количество запросов и ошибок — с момента запуска.
+     *
+     * @return список маршрутов с количеством запросов, ошибок и задержками p50/p95/p99/max в миллисекундах
+     */
+    @GetMapping("/routes")
+    public List<Map<String, Object>> getRouteStats() {
+        Predicate<Timer> api = timer -> String.valueOf(timer.getId().getTag("uri")).startsWith("/api/");
+        Function<Timer, String> route = timer -> timer.getId().getTag("method") + " " + timer.getId().getTag("uri");
+        return summarize(meterRegistry.find("http.server.requests").timers().stream().filter(api).toList(), route,
+                timer -> "SERVER_ERROR".equals(timer.getId().getTag("outcome")),
+                meterRegistry.find(RouteTimerObservationHandler.METER).timers().stream().filter(api)
+                        .collect(Collectors.toMap(route, Function.identity())));
+    }
+
+    /**
+     * Получает задержки вызовов репозиториев Spring Data.
+     * <p>
+     * Процентили и максимум считаются по успешным вызовам метода.
+     *
+     * @return список методов репозиториев с количеством вызовов, ошибок и задержками p50/p95/p99/max в миллисекундах
+     */
+    @GetMapping("/repositories")
+    public List<Map<String, Object>> getRepositoryStats() {
+        Collection<Timer> timers = meterRegistry.find("spring.data.repository.invocations").timers();
+        Function<Timer, String> method = timer -> timer.getId().getTag("repository") + "." + timer.getId().getTag("method");
+        return summarize(timers, method,
+                timer -> "ERROR".equals(timer.getId().getTag("state")),
+                timers.stream().filter(timer -> "SUCCESS".equals(timer.getId().getTag("state")))
+                        .collect(Collectors.toMap(method, Function.identity())));
+    }
+
+    /**
+     * Группирует таймеры по ключу и формирует сводку по каждой группе: количество и ошибки суммируются
+     * по всем таймерам группы, а задержки берутся у таймера с тем же ключом из {@code latencies}.
+     */
+    private static List<Map<String, Object>> summarize(Collection<Timer> timers,
+                                                       Function<Timer, String> key,
+                                                       Predicate<Timer> failed,
+                                                       Map<String, Timer> latencies) {
+        Map<String, List<Timer>> groups = new TreeMap<>();
+        for (Timer timer : timers) {
+            groups.computeIfAbsent(key.apply(timer), k -> new ArrayList<>()).add(timer);
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        groups.forEach((name, group) -> {
+            long count = 0;
+            long errors = 0;
+            for (Timer timer : group) {
+                count += timer.count();
+                if (failed.test(timer)) {
+                    errors += timer.count();
+                }
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("name", name);
+            values.put("count", count);
+            values.put("errors", errors);
+            Timer latency = latencies.get(name);
+            if (latency != null) {
+                HistogramSnapshot snapshot = latency.takeSnapshot();
+                for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                    values.put("p" + Math.round(percentile.percentile() * 100) + "Millis",
+                            percentile.value(TimeUnit.MILLISECONDS));
+                }
+                values.put("maxMillis", snapshot.max(TimeUnit.MILLISECONDS));
+            }
+            result.add(values);
+        });
+        return result;
+    }
+}
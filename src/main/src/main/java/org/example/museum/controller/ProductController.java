@@ -1,17 +1,43 @@
 package org.example.museum.controller;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.example.museum.model.Category;
 import org.example.museum.model.Product;
-import org.example.museum.repository.ProductRepository;
+import org.example.museum.model.ProductFilter;
+import org.example.museum.model.ProductSummary;
+import org.example.museum.service.CatalogColumns;
+import org.example.museum.service.CatalogStatistics;
+import org.example.museum.service.CatalogStatisticsService;
+import org.example.museum.service.CatalogVersion;
 import org.example.museum.service.CategoryService;
+import org.example.museum.service.DeliveryHistogram;
+import org.example.museum.service.ProductChangeFeed;
+import org.example.museum.service.ProductExportService;
+import org.example.museum.service.ProductIngestReport;
+import org.example.museum.service.ProductIngestService;
+import org.example.museum.service.ProductJsonCache;
 import org.example.museum.service.ProductService;
+import org.example.museum.service.ProductSuggestIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Контроллер для работы с продуктами в системе.
@@ -23,6 +49,22 @@ import java.util.Map;
 @RequestMapping("/api/products")
 public class ProductController {
 
+    /**
+     * Заголовок ответа с курсором для запроса следующей страницы.
+     */
+    static final String NEXT_CURSOR_HEADER = "X-Next-After";
+
+    /**
+     * Максимальный размер страницы при keyset-пагинации.
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private static final int EXPORT_GZIP_BUFFER = 16 * 1024;
+
     @Autowired
     private ProductService productService;
 
@@ -30,26 +72,229 @@ public class ProductController {
     private CategoryService categoryService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductIngestService productIngestService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private CatalogStatisticsService catalogStatisticsService;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private CatalogColumns catalogColumns;
 
     /**
      * Получение списка продуктов с возможностью фильтрации по ключевому слову.
      * <p>
      * Если параметр "keyword" не передан или пуст, возвращаются все продукты.
      * В противном случае выполняется поиск по ключевому слову.
+     * Продукты возвращаются в кратком представлении {@link ProductSummary} с полями таблицы каталога.
+     * Ответ собирается из готового JSON продуктов ({@link ProductJsonCache}) и записывается в поток
+     * без повторной сериализации.
+     * <p>
+     * Если передан параметр "limit", возвращается одна страница продуктов с идентификатором больше "after"
+     * (keyset-пагинация). Когда за страницей есть продолжение, курсор для следующего запроса
+     * передается в заголовке {@value #NEXT_CURSOR_HEADER}.
+     * <p>
+     * Параметры "category", "artist", "createdFrom", "createdTo" и "namePrefix" отбирают продукты по полям
+     * ({@link ProductFilter}); условия проверяет база данных по индексам таблицы продуктов. Они сочетаются
+     * с ключевым словом и пагинацией.
+     * <p>
+     * Ответ помечается ETag версии каталога. Если каталог не менялся, на запрос с If-None-Match
+     * возвращается статус 304 (Not Modified) без обращения к базе данных.
      *
      * @param keyword ключевое слово для фильтрации продуктов (необязательный параметр)
-     * @return ResponseEntity, содержащий список продуктов
+     * @param category идентификатор категории (необязательный параметр)
+     * @param artist художник, точное совпадение (необязательный параметр)
+     * @param createdFrom первая дата создания в формате YYYY-MM-DD (необязательный параметр)
+     * @param createdTo последняя дата создания в формате YYYY-MM-DD (необязательный параметр)
+     * @param namePrefix начало названия (необязательный параметр)
+     * @param limit размер страницы, не более {@value #MAX_PAGE_SIZE} (необязательный параметр)
+     * @param after идентификатор последнего продукта предыдущей страницы (необязательный параметр)
+     * @param request текущий запрос для проверки If-None-Match
+     * @return ResponseEntity с JSON-массивом продуктов, записываемым в поток ответа,
+     *         или статус 400 (Bad Request), если параметры заданы неверно
      */
     @GetMapping
-    public ResponseEntity<List<Product>> getProducts(@RequestParam(value = "keyword", required = false) String keyword) {
-        List<Product> products;
-        if (keyword == null || keyword.isEmpty()) {
-            products = productRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> getProducts(@RequestParam(value = "keyword", required = false) String keyword,
+                                                             @RequestParam(value = "category", required = false) Long category,
+                                                             @RequestParam(value = "artist", required = false) String artist,
+                                                             @RequestParam(value = "createdFrom", required = false) LocalDate createdFrom,
+                                                             @RequestParam(value = "createdTo", required = false) LocalDate createdTo,
+                                                             @RequestParam(value = "namePrefix", required = false) String namePrefix,
+                                                             @RequestParam(value = "limit", required = false) Integer limit,
+                                                             @RequestParam(value = "after", required = false) Long after,
+                                                             ServletWebRequest request) {
+        if (createdFrom != null && createdTo != null && createdFrom.isAfter(createdTo)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ProductFilter filter = new ProductFilter(category, blankToNull(artist), createdFrom, createdTo, blankToNull(namePrefix));
+        String etag = catalogVersion.etag();
+        if (ConditionalRequests.checkNotModified(request, etag)) {
+            return null;
+        }
+        if (limit != null) {
+            return getProductsPage(keyword, filter, after, limit, etag);
+        }
+        List<ProductJsonCache.CachedRow> products;
+        if (!filter.isEmpty()) {
+            products = productService.filterJson(filter, keyword);
+        } else if (keyword == null || keyword.isEmpty()) {
+            products = productService.findAllJson();
         } else {
-            products = productRepository.search(keyword);
+            products = productService.searchJson(keyword);
         }
-        return ResponseEntity.ok(products);
+        return jsonArray(ResponseEntity.ok().eTag(etag), products);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /**
+     * Формирует ответ с одной страницей продуктов.
+     * Запрашивается на один продукт больше, чтобы определить, есть ли следующая страница.
+     */
+    private ResponseEntity<StreamingResponseBody> getProductsPage(String keyword, ProductFilter filter, Long after,
+                                                                  int limit, String etag) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<ProductJsonCache.CachedRow> products = filter.isEmpty()
+                ? productService.findPageJson(keyword, after, limit + 1)
+                : productService.filterPageJson(filter, keyword, after, limit + 1);
+        if (products.size() <= limit) {
+            return jsonArray(ResponseEntity.ok().eTag(etag), products);
+        }
+        List<ProductJsonCache.CachedRow> page = products.subList(0, limit);
+        return jsonArray(ResponseEntity.ok()
+                .eTag(etag)
+                .header(NEXT_CURSOR_HEADER, String.valueOf(page.get(limit - 1).id())), page);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> jsonArray(ResponseEntity.BodyBuilder response,
+                                                                   List<ProductJsonCache.CachedRow> rows) {
+        StreamingResponseBody body = out -> ProductJsonCache.writeArray(out, rows);
+        return response.contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Потоковая выгрузка всех продуктов в формате NDJSON (один JSON-объект на строку).
+     * <p>
+     * Продукты записываются в ответ по мере чтения из базы и не накапливаются в памяти.
+     *
+     * @return ResponseEntity с телом, записываемым в поток ответа
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamProducts() {
+        StreamingResponseBody body = out -> productExportService.export(out, ProductIngestService.Format.NDJSON);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Выгрузка всего каталога в CSV или NDJSON в формате пакетной загрузки.
+     * <p>
+     * Продукты читаются из базы курсором и записываются в ответ по мере чтения, поэтому расход памяти
+     * не зависит от размера каталога. Если клиент принимает gzip (заголовок Accept-Encoding),
+     * ответ сжимается на лету. При отключении клиента чтение из базы прекращается.
+     *
+     * @param format формат выгрузки: csv или ndjson (по умолчанию csv)
+     * @param acceptEncoding заголовок Accept-Encoding запроса (необязательный)
+     * @return ResponseEntity с телом, записываемым в поток ответа,
+     *         или статус 400 (Bad Request), если формат не поддерживается
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ProductIngestService.Format exportFormat;
+        try {
+            exportFormat = ProductIngestService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> {
+            if (!gzip) {
+                productExportService.export(out, exportFormat);
+                return;
+            }
+            // Сжатые данные сбрасываются вместе с периодическим сбросом выгрузки
+            GZIPOutputStream compressed = new GZIPOutputStream(out, EXPORT_GZIP_BUFFER, true);
+            productExportService.export(compressed, exportFormat);
+            compressed.finish();
+        };
+        String extension = exportFormat.name().toLowerCase(Locale.ROOT);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == ProductIngestService.Format.CSV ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("products." + extension).build().toString())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Проверяет, принимает ли клиент ответ в gzip: кодировка gzip указана без {@code q=0}.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].replace(" ", "");
+                    if (parameter.matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Подсказки для строки поиска по началу названия или имени художника.
+     * <p>
+     * Регистр букв и различие «ё» и «е» не учитываются. Подсказки упорядочены по убыванию частоты.
+     *
+     * @param prefix введенное начало названия или имени художника
+     * @param limit максимальное число подсказок, не более {@value ProductSuggestIndex#MAX_SUGGESTIONS}
+     * @return ResponseEntity со списком подсказок
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestIndex.Suggestion>> suggest(@RequestParam("prefix") String prefix,
+                                                                        @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productSuggestIndex.suggest(prefix, limit));
+    }
+
+    /**
+     * Подписка на изменения каталога (Server-Sent Events).
+     * <p>
+     * Клиент получает события {@code created}, {@code updated} и {@code deleted} по мере изменения продуктов.
+     * При переподключении передается заголовок Last-Event-ID, и клиент получает пропущенные события
+     * или событие {@code reset}, если каталог нужно загрузить заново.
+     *
+     * @param lastEventId идентификатор последнего полученного события (необязательный заголовок)
+     * @return SseEmitter потока событий
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return productChangeFeed.subscribe(lastEventId);
     }
 
     /**
@@ -57,14 +302,20 @@ public class ProductController {
      * <p>
      * Если продукт с указанным идентификатором найден, возвращается его информация.
      * Если продукт не найден, возвращается ошибка 404 (Not Found).
+     * Если каталог не менялся, на запрос с If-None-Match возвращается статус 304 (Not Modified).
      *
      * @param id идентификатор продукта
+     * @param request текущий запрос для проверки If-None-Match
      * @return ResponseEntity, содержащий данные продукта или статус 404, если продукт не найден
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProduct(@PathVariable Long id) {
+    public ResponseEntity<Product> getProduct(@PathVariable Long id, ServletWebRequest request) {
+        String etag = catalogVersion.etag();
+        if (ConditionalRequests.checkNotModified(request, etag)) {
+            return null;
+        }
         Product product = productService.get(id);
-        return product != null ? ResponseEntity.ok(product) : ResponseEntity.notFound().build();
+        return product != null ? ResponseEntity.ok().eTag(etag).body(product) : ResponseEntity.notFound().build();
     }
 
     /**
@@ -91,4 +342,150 @@ public class ProductController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    /**
+     * Частичное обновление продукта.
+     * <p>
+     * Изменяются только переданные поля, остальные сохраняют прежние значения. Если в теле передано поле
+     * "version", продукт обновляется только при совпадении версии. При конкурентном изменении
+     * возвращается статус 409 (Conflict). Метод PUT принимается так же, как PATCH: страница редактирования
+     * передает только поля формы.
+     *
+     * @param id идентификатор продукта
+     * @param changes изменяемые поля продукта
+     * @return ResponseEntity с обновленным продуктом, статус 404, если продукт не найден,
+     *         или 400 (Bad Request), если значения полей или категория некорректны
+     */
+    @RequestMapping(value = "/{id}", method = {RequestMethod.PATCH, RequestMethod.PUT})
+    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody ObjectNode changes) {
+        Product product;
+        try {
+            product = productService.patch(id, changes);
+        } catch (IOException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return product != null ? ResponseEntity.ok(product) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Удаление продукта по его идентификатору.
+     *
+     * @param id идентификатор продукта
+     * @return ResponseEntity со статусом 204 (No Content)
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
+        productService.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Обрабатывает конфликт версий при обновлении продукта.
+     *
+     * @return ResponseEntity со статусом 409 (Conflict)
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleVersionConflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * Пакетная загрузка продуктов из CSV.
+     * <p>
+     * Тело запроса читается потоково и вставляется пакетами. Строки с ошибками не прерывают загрузку
+     * и перечисляются в отчете.
+     *
+     * @param body тело запроса в формате CSV со строкой заголовка
+     * @return ResponseEntity с отчетом о загрузке
+     * @throws IOException если тело запроса не удалось прочитать
+     */
+    @PostMapping(value = "/batch", consumes = "text/csv")
+    public ResponseEntity<ProductIngestReport> addProductsCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(productIngestService.ingest(body, ProductIngestService.Format.CSV));
+    }
+
+    /**
+     * Пакетная загрузка продуктов из NDJSON (один JSON-объект на строку).
+     *
+     * @param body тело запроса в формате NDJSON
+     * @return ResponseEntity с отчетом о загрузке
+     * @throws IOException если тело запроса не удалось прочитать
+     */
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    public ResponseEntity<ProductIngestReport> addProductsNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(productIngestService.ingest(body, ProductIngestService.Format.NDJSON));
+    }
+
+    /**
+     * Получение гистограммы количества продуктов по датам поставки.
+     * <p>
+     * Без параметров возвращается количество по дням за последние 14 дней, только для дней с поставками.
+     * Если задан хотя бы один из параметров "from", "to" или "bucket", возвращаются суммы по интервалам
+     * диапазона, включая пустые. По умолчанию "to" — текущая дата, "from" — за 13 дней до "to",
+     * "bucket" — день.
+     *
+     * @param from первая дата диапазона в формате YYYY-MM-DD (необязательный параметр)
+     * @param to последняя дата диапазона в формате YYYY-MM-DD (необязательный параметр)
+     * @param bucket интервал группировки: day, week или month (необязательный параметр)
+     * @return ResponseEntity с картой "дата поставки или начало интервала — количество в наличии",
+     *         или статус 400 (Bad Request), если параметры заданы неверно
+     */
+    @GetMapping("/histogram")
+    public ResponseEntity<Map<LocalDate, Long>> getHistogram(@RequestParam(value = "from", required = false) LocalDate from,
+                                                             @RequestParam(value = "to", required = false) LocalDate to,
+                                                             @RequestParam(value = "bucket", required = false) String bucket) {
+        if (from == null && to == null && bucket == null) {
+            return ResponseEntity.ok(productService.getProductsCountByDeliveryDate());
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(13);
+        try {
+            DeliveryHistogram.Bucket interval = bucket != null
+                    ? DeliveryHistogram.Bucket.valueOf(bucket.toUpperCase(Locale.ROOT))
+                    : DeliveryHistogram.Bucket.DAY;
+            return ResponseEntity.ok(productService.getProductsCountByDeliveryDate(start, end, interval));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Получение статистики по всему каталогу: число продуктов и количество в наличии по категориям,
+     * самые частые художники, распределение по годам создания и общие итоги.
+     *
+     * @param artists сколько самых частых художников включить в ответ, не более
+     *                {@value CatalogStatisticsService#MAX_TOP_ARTISTS} (по умолчанию 20)
+     * @return ResponseEntity со статистикой каталога,
+     *         или статус 400 (Bad Request), если число художников вне допустимого диапазона
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CatalogStatistics> getStatistics(@RequestParam(value = "artists", defaultValue = "20") int artists) {
+        if (artists < 0 || artists > CatalogStatisticsService.MAX_TOP_ARTISTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(catalogStatisticsService.compute(artists));
+    }
+
+    /**
+     * Аналитика каталога по поколоночному снимку {@link CatalogColumns}: число продуктов и количество
+     * в наличии, всего и по категориям, для продуктов с датой в диапазоне. Запрос не обращается к базе данных.
+     *
+     * @param date дата, по которой отбираются продукты: creation или delivery (по умолчанию delivery)
+     * @param from первая дата диапазона в формате YYYY-MM-DD (необязательный параметр)
+     * @param to последняя дата диапазона в формате YYYY-MM-DD (необязательный параметр)
+     * @param artist учитывать только продукты этого художника (необязательный параметр)
+     * @return ResponseEntity с итогами, или статус 400 (Bad Request), если параметры заданы неверно
+     */
+    @GetMapping("/analytics")
+    public ResponseEntity<CatalogColumns.Summary> getAnalytics(@RequestParam(value = "date", defaultValue = "delivery") String date,
+                                                               @RequestParam(value = "from", required = false) LocalDate from,
+                                                               @RequestParam(value = "to", required = false) LocalDate to,
+                                                               @RequestParam(value = "artist", required = false) String artist) {
+        try {
+            CatalogColumns.DateField field = CatalogColumns.DateField.valueOf(date.toUpperCase(Locale.ROOT));
+            return ResponseEntity.ok(catalogColumns.summarize(field, from, to, artist));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
@@ -1,19 +1,30 @@
 package org.example.museum.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Модель категории продуктов.
  * <p>
  * Этот класс представляет сущность "Category", которая используется для хранения информации о категориях продуктов
  * в системе музея. Каждая категория имеет уникальный идентификатор и имя.
+ * Категории хранятся в кэше второго уровня Hibernate (регион {@value #CACHE_REGION}).
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Category.CACHE_REGION)
 public class Category {
 
+    /**
+     * Регион кэша второго уровня для категорий.
+     */
+    public static final String CACHE_REGION = "category";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY) // Генерация идентификатора через автоинкремент
     private Long id;
@@ -1,12 +1,21 @@
 package org.example.museum.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Column;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -14,14 +23,38 @@ import java.time.LocalDate;
  * Модель продукта.
  * <p>
  * Этот класс представляет сущность "Product", которая используется для хранения информации о продукте в системе.
+ * При обновлении в SQL попадают только измененные столбцы.
+ * Продукты хранятся в кэше второго уровня Hibernate (регион {@value #CACHE_REGION}).
+ * <p>
+ * Индексы покрывают условия {@link ProductFilter}: категория и художник с диапазоном дат создания,
+ * диапазон дат создания и начало названия.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_product_category_creation", columnList = "category_id, creation_date"),
+        @Index(name = "idx_product_artist_creation", columnList = "artist, creation_date"),
+        @Index(name = "idx_product_creation", columnList = "creation_date"),
+        @Index(name = "idx_product_name", columnList = "name")
+})
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
 public class Product {
 
-    private Long id; // ID 
-    private String name; // Название 
+    /**
+     * Регион кэша второго уровня для продуктов.
+     */
+    public static final String CACHE_REGION = "product";
+
+    private Long id; // ID
+    private String name; // Название
     private String artist; // Художник (ссылка на объект категории)
     private LocalDate creationDate; // Дата создания
+    private Category category; // Категория экспоната
+    private String manufacturer; // Производитель
+    private int quantity; // Количество в наличии
+    private LocalDate deliveryDate; // Дата поставки
+    private long version; // Версия строки, увеличивается при каждом обновлении
 
     /**
      * Конструктор по умолчанию.
@@ -45,7 +78,7 @@ public class Product {
     /**
      * Установка идентификатора .
      *
-     * @param id Идентификатор 
+     * @param id Идентификатор
      */
     public void setId(Long id) {
         this.id = id;
@@ -54,7 +87,7 @@ public class Product {
     /**
      * Получение названия.
      *
-     * @return Название 
+     * @return Название
      */
     @Column(nullable = false, length = 255) // Указываем обязательность и максимальную длину
     public String getName() {
@@ -70,10 +103,28 @@ public class Product {
         this.name = name;
     }
 
+    /**
+     * Получение имени художника.
+     *
+     * @return Художник
+     */
+    public String getArtist() {
+        return artist;
+    }
+
+    /**
+     * Установка имени художника.
+     *
+     * @param artist Художник
+     */
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
     /**
      * Получение категории.
      *
-     * @return Категория 
+     * @return Категория
      */
     @ManyToOne
     @JoinColumn(name = "category_id", nullable = false) // Связь с категорией, обязательность
@@ -110,23 +161,82 @@ public class Product {
     }
 
     /**
-     * Получение даты поставки продукта.
+     * Получение количества экземпляров в наличии.
      *
-     * @return Дата поставки
+     * @return Количество в наличии
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Установка количества экземпляров в наличии.
+     *
+     * @param quantity Количество в наличии
+     */
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    /**
+     * Получение даты создания.
+     *
+     * @return Дата создания
      */
     @Column(nullable = false) // Указываем обязательность
-    public LocalDate creationDate() {
+    public LocalDate getCreationDate() {
         return creationDate;
     }
 
     /**
      * Установка даты написания.
      *
-     * @param deliveryDate Дата написани
+     * @param creationDate Дата написания
      */
-    public void creationDate(LocalDate creationDate) {
+    public void setCreationDate(LocalDate creationDate) {
         this.creationDate = creationDate;
     }
+
+    /**
+     * Получение даты поставки продукта.
+     *
+     * @return Дата поставки
+     */
+    public LocalDate getDeliveryDate() {
+        return deliveryDate;
+    }
+
+    /**
+     * Установка даты поставки продукта.
+     *
+     * @param deliveryDate Дата поставки
+     */
+    public void setDeliveryDate(LocalDate deliveryDate) {
+        this.deliveryDate = deliveryDate;
+    }
+
+    /**
+     * Получение версии продукта.
+     * <p>
+     * Версия увеличивается Hibernate при каждом обновлении строки и позволяет отличить
+     * актуальное состояние продукта от устаревшего.
+     *
+     * @return Версия продукта
+     */
+    @Version
+    @ColumnDefault("0")
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Установка версии продукта.
+     *
+     * @param version Версия продукта
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
 
 
@@ -0,0 +1,29 @@
+package org.example.museum.model;
+
+import java.time.LocalDate;
+
+/**
+ * Условия отбора продуктов по полям. Незаданное ({@code null}) условие не ограничивает выборку,
+ * заданные условия объединяются через «и».
+ *
+ * @param categoryId идентификатор категории
+ * @param artist художник, точное совпадение
+ * @param createdFrom первая дата создания (включительно)
+ * @param createdTo последняя дата создания (включительно)
+ * @param namePrefix начало названия
+ */
+public record ProductFilter(Long categoryId,
+                            String artist,
+                            LocalDate createdFrom,
+                            LocalDate createdTo,
+                            String namePrefix) {
+
+    /**
+     * Проверяет, что не задано ни одного условия.
+     *
+     * @return {@code true}, если фильтр не ограничивает выборку.
+     */
+    public boolean isEmpty() {
+        return categoryId == null && artist == null && createdFrom == null && createdTo == null && namePrefix == null;
+    }
+}
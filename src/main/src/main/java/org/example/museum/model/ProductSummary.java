@@ -0,0 +1,45 @@
+package org.example.museum.model;
+
+import java.time.LocalDate;
+
+/**
+ * Краткое представление продукта для списков.
+ * <p>
+ * Содержит только поля, которые отображаются в таблице каталога, вместе с названием категории.
+ *
+ * @param id идентификатор продукта
+ * @param name название
+ * @param category категория экспоната
+ * @param manufacturer производитель
+ * @param quantity количество в наличии
+ * @param deliveryDate дата поставки
+ */
+public record ProductSummary(Long id,
+                             String name,
+                             CategoryRef category,
+                             String manufacturer,
+                             int quantity,
+                             LocalDate deliveryDate) {
+
+    /**
+     * Строит краткое представление продукта.
+     *
+     * @param product продукт
+     * @return краткое представление с теми же значениями полей
+     */
+    public static ProductSummary of(Product product) {
+        Category category = product.getCategory();
+        return new ProductSummary(product.getId(), product.getName(),
+                category != null ? new CategoryRef(category.getId(), category.getName()) : null,
+                product.getManufacturer(), product.getQuantity(), product.getDeliveryDate());
+    }
+
+    /**
+     * Категория продукта в кратком представлении.
+     *
+     * @param id идентификатор категории
+     * @param name название категории
+     */
+    public record CategoryRef(Long id, String name) {
+    }
+}
@@ -1,7 +1,12 @@
 package org.example.museum.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.museum.model.Category;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
 
 /**
  * Репозиторий для работы с сущностью {@link Category}.
@@ -14,5 +19,21 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
-}
+    /**
+     * Идентификаторы и названия всех категорий. Запрос выбирает только столбцы, поэтому не читает
+     * и не заполняет кэши Hibernate и дает тот же снимок, что и остальные запросы транзакции.
+     */
+    String NAMES = "SELECT c.id, c.name FROM Category c";
 
+    /**
+     * Возвращает все категории.
+     * <p>
+     * Результат хранится в кэше запросов Hibernate: в кэше лежат только идентификаторы, а сами категории
+     * берутся из кэша второго уровня. Любое изменение таблицы категорий через JPA делает результат устаревшим.
+     *
+     * @return Список всех категорий.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Category> findAll();
+}
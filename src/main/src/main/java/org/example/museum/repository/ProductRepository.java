@@ -1,27 +1,58 @@
 package org.example.museum.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.museum.model.Product;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 
 /**
  * Репозиторий для работы с {@link Product}.
  * Предоставляет стандартные CRUD-операции и метод для поиска продуктов по ключевому слову.
+ * <p>
+ * Списочные запросы загружают категорию в том же запросе (JOIN FETCH или граф сущности), чтобы
+ * не выполнять отдельный запрос категории для каждого продукта.
+ * <p>
+ * Продукты по идентификатору читаются из кэша второго уровня. Запросы продуктов в кэш запросов
+ * не попадают: пакетная загрузка вставляет строки через JDBC в обход Hibernate, и закэшированный
+ * результат запроса не узнал бы о новых продуктах. Запросы по всему каталогу не заполняют кэш
+ * второго уровня, чтобы не вытеснять из него часто читаемые продукты.
  */
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    /**
+     * Столбцы продукта для подсчета статистики каталога: идентификатор категории, художник,
+     * дата создания и количество в наличии. Выполняется с размером выборки из настроек,
+     * поэтому задается строкой, а не методом репозитория.
+     */
+    String STATISTICS_ROWS = "SELECT p.category.id, p.artist, p.creationDate, p.quantity FROM Product p";
+
+    /**
+     * Все продукты с категориями в порядке возрастания идентификатора для построчного чтения курсором.
+     * Выполняется с размером выборки из настроек, поэтому задается строкой, а не методом репозитория.
+     */
+    String SCROLL_ALL = "SELECT p FROM Product p JOIN FETCH p.category ORDER BY p.id";
+
+    /**
+     * Возвращает все продукты вместе с категориями.
+     *
+     * @return Список всех продуктов.
+     */
+    @Override
+    @EntityGraph(attributePaths = "category")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    List<Product> findAll();
+
     /**
      * Ищет продукты по ключевому слову в полях: название, категория, производитель, дата поставки.
      *
      * @param keyword Ключевое слово для поиска.
      * @return Список найденных продуктов.
      */
-    @Query("SELECT p FROM Product p WHERE CONCAT(p.id, ' ', p.name, ' ', p.artist, ' ', p.creationDate) LIKE %?1%")
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE CONCAT(p.id, ' ', p.name, ' ', p.artist, ' ', p.creationDate) LIKE %?1%")
     List<Product> search(String keyword);
 }
-
-
-
-
@@ -0,0 +1,97 @@
+package org.example.museum.repository;
+
+import org.example.museum.model.Product;
+import org.example.museum.model.ProductFilter;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Спецификации JPA для отбора продуктов по {@link ProductFilter}.
+ * <p>
+ * Условия сравнивают столбцы без функций над ними, а начало названия проверяется выражением
+ * {@code LIKE 'prefix%'}, поэтому база может использовать индексы, объявленные в {@link Product}.
+ * Регистр букв учитывается так, как задано сравнением строк столбца (в MySQL по умолчанию без учета регистра).
+ */
+public final class ProductSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Спецификация, объединяющая все заданные условия фильтра.
+     *
+     * @param filter условия отбора.
+     * @return спецификация, которой соответствуют продукты, удовлетворяющие всем условиям.
+     */
+    public static Specification<Product> matching(ProductFilter filter) {
+        return Specification.allOf(
+                categoryIs(filter.categoryId()),
+                artistIs(filter.artist()),
+                createdBetween(filter.createdFrom(), filter.createdTo()),
+                nameStartsWith(filter.namePrefix()));
+    }
+
+    /**
+     * Продукты категории; {@code null} — без ограничения.
+     */
+    public static Specification<Product> categoryIs(Long categoryId) {
+        return categoryId == null ? null
+                : (root, query, cb) -> cb.equal(root.get("category").get("id"), categoryId);
+    }
+
+    /**
+     * Продукты художника; {@code null} — без ограничения.
+     */
+    public static Specification<Product> artistIs(String artist) {
+        return artist == null ? null
+                : (root, query, cb) -> cb.equal(root.get("artist"), artist);
+    }
+
+    /**
+     * Продукты с датой создания в диапазоне {@code [from, to]}; незаданная граница не ограничивает выборку.
+     */
+    public static Specification<Product> createdBetween(LocalDate from, LocalDate to) {
+        if (from != null && to != null) {
+            return (root, query, cb) -> cb.between(root.get("creationDate"), from, to);
+        }
+        if (from != null) {
+            return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("creationDate"), from);
+        }
+        if (to != null) {
+            return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("creationDate"), to);
+        }
+        return null;
+    }
+
+    /**
+     * Продукты, название которых начинается с {@code prefix}; {@code null} — без ограничения.
+     * Символы {@code %} и {@code _} в начале названия экранируются и сравниваются буквально.
+     */
+    public static Specification<Product> nameStartsWith(String prefix) {
+        if (prefix == null) {
+            return null;
+        }
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.get("name"), pattern, LIKE_ESCAPE);
+    }
+
+    /**
+     * Продукты с идентификатором больше {@code after} для keyset-пагинации; {@code null} — без ограничения.
+     */
+    public static Specification<Product> idGreaterThan(Long after) {
+        return after == null ? null
+                : (root, query, cb) -> cb.greaterThan(root.get("id"), after);
+    }
+
+    /**
+     * Продукты с идентификатором из списка, например найденные по ключевому слову; {@code null} — без ограничения.
+     */
+    public static Specification<Product> idIn(Collection<Long> ids) {
+        return ids == null ? null
+                : (root, query, cb) -> root.get("id").in(ids);
+    }
+}
@@ -0,0 +1,255 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Поколоночный снимок каталога в массивах примитивов для аналитических запросов.
+ * <p>
+ * Для каждого продукта хранится строка из столбцов: идентификатор, даты создания и поставки
+ * в эпоха-днях, код категории, код художника и количество в наличии. Категории и художники
+ * закодированы словарями: код — индекс в списке значений, так что сравнение и группировка идут
+ * по числам. Снимок заполняется при первичной загрузке каталога и обновляется при сохранении
+ * и удалении продуктов, как и другие {@link ProductChangeListener}.
+ * <p>
+ * Запросы проходят по столбцам одним циклом без сущностей Hibernate и без создания объектов
+ * на каждую строку. Удаленная строка заменяется последней, поэтому столбцы остаются плотными,
+ * а порядок строк не определен. Словари не сокращаются: в них остаются значения удаленных продуктов.
+ */
+@Component
+public class CatalogColumns implements ProductChangeListener {
+
+    /**
+     * Дата, по которой отбираются продукты.
+     */
+    public enum DateField {
+        /**
+         * Дата создания экспоната.
+         */
+        CREATION,
+        /**
+         * Дата поставки. Продукты без даты поставки не отбираются.
+         */
+        DELIVERY
+    }
+
+    /**
+     * Итоги по отобранным продуктам.
+     *
+     * @param products число продуктов
+     * @param quantity суммарное количество в наличии
+     * @param categories итоги по категориям, по убыванию числа продуктов; категории без продуктов не включаются
+     */
+    public record Summary(long products, long quantity, List<CatalogStatistics.CategoryTotals> categories) {
+    }
+
+    // Значение столбца даты для продукта без даты
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    // Код отсутствующего художника
+    private static final int NO_ARTIST = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> rows = new HashMap<>();
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] creationDays = new int[INITIAL_CAPACITY];
+    private int[] deliveryDays = new int[INITIAL_CAPACITY];
+    private int[] categoryCodes = new int[INITIAL_CAPACITY];
+    private int[] artistCodes = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+
+    private final Map<Long, Integer> categoryDictionary = new HashMap<>();
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final Map<String, Integer> artistDictionary = new HashMap<>();
+
+    /**
+     * Добавляет строку продукта или обновляет ее на месте.
+     *
+     * @param product сохраненный продукт.
+     */
+    @Override
+    public void productSaved(Product product) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(product.getId());
+            if (row == null) {
+                ensureCapacity(size + 1);
+                row = size++;
+                rows.put(product.getId(), row);
+            }
+            ids[row] = product.getId();
+            creationDays[row] = day(product.getCreationDate());
+            deliveryDays[row] = day(product.getDeliveryDate());
+            categoryCodes[row] = categoryCode(product.getCategory());
+            artistCodes[row] = product.getArtist() == null
+                    ? NO_ARTIST
+                    : artistDictionary.computeIfAbsent(product.getArtist(), artist -> artistDictionary.size());
+            quantities[row] = product.getQuantity();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет строку продукта, перенося на ее место последнюю строку.
+     *
+     * @param id идентификатор удаленного продукта.
+     */
+    @Override
+    public void productDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.remove(id);
+            if (row == null) {
+                return;
+            }
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                creationDays[row] = creationDays[last];
+                deliveryDays[row] = deliveryDays[last];
+                categoryCodes[row] = categoryCodes[last];
+                artistCodes[row] = artistCodes[last];
+                quantities[row] = quantities[last];
+                rows.put(ids[row], row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает число продуктов в снимке.
+     *
+     * @return число продуктов.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Считает число продуктов и количество в наличии, всего и по категориям, для продуктов с датой
+     * в диапазоне {@code [from, to]}.
+     *
+     * @param field дата, по которой отбираются продукты.
+     * @param from первая дата диапазона (включительно) или {@code null} без ограничения.
+     * @param to последняя дата диапазона (включительно) или {@code null} без ограничения.
+     * @param artist художник, продукты которого учитываются, или {@code null} для всех продуктов.
+     * @return итоги по отобранным продуктам.
+     * @throws IllegalArgumentException если {@code from} позже {@code to}.
+     */
+    public Summary summarize(DateField field, LocalDate from, LocalDate to, String artist) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже его конца: " + from + " > " + to);
+        }
+        // Границы за пределами представимых дней сужаются до них: NO_DATE остается вне диапазона
+        long lo = from == null ? NO_DATE + 1L : Math.max(from.toEpochDay(), NO_DATE + 1L);
+        long hi = to == null ? Integer.MAX_VALUE : Math.min(to.toEpochDay(), Integer.MAX_VALUE);
+        long[] products;
+        long[] quantity;
+        List<Long> codes;
+        lock.readLock().lock();
+        try {
+            products = new long[categoryIds.size()];
+            quantity = new long[categoryIds.size()];
+            codes = List.copyOf(categoryIds);
+            if (lo <= hi) {
+                int[] days = field == DateField.CREATION ? creationDays : deliveryDays;
+                Integer artistCode = artist == null ? null : artistDictionary.get(artist);
+                if (artist == null) {
+                    count(days, (int) lo, (int) hi, products, quantity);
+                } else if (artistCode != null) {
+                    count(days, (int) lo, (int) hi, artistCode, products, quantity);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return summary(codes, products, quantity);
+    }
+
+    private void count(int[] days, int lo, int hi, long[] products, long[] quantity) {
+        for (int i = 0; i < size; i++) {
+            int day = days[i];
+            if (day >= lo && day <= hi) {
+                int code = categoryCodes[i];
+                products[code]++;
+                quantity[code] += quantities[i];
+            }
+        }
+    }
+
+    private void count(int[] days, int lo, int hi, int artistCode, long[] products, long[] quantity) {
+        for (int i = 0; i < size; i++) {
+            int day = days[i];
+            if (artistCodes[i] == artistCode && day >= lo && day <= hi) {
+                int code = categoryCodes[i];
+                products[code]++;
+                quantity[code] += quantities[i];
+            }
+        }
+    }
+
+    private Summary summary(List<Long> codes, long[] products, long[] quantity) {
+        Map<Long, String> names = new HashMap<>();
+        for (Category category : categoryService.getAllCategories()) {
+            names.put(category.getId(), category.getName());
+        }
+        long totalProducts = 0;
+        long totalQuantity = 0;
+        List<CatalogStatistics.CategoryTotals> categories = new ArrayList<>();
+        for (int code = 0; code < products.length; code++) {
+            if (products[code] > 0) {
+                Long id = codes.get(code);
+                categories.add(new CatalogStatistics.CategoryTotals(id, names.get(id), products[code], quantity[code]));
+                totalProducts += products[code];
+                totalQuantity += quantity[code];
+            }
+        }
+        categories.sort(Comparator.comparingLong(CatalogStatistics.CategoryTotals::products).reversed()
+                .thenComparing(CatalogStatistics.CategoryTotals::id));
+        return new Summary(totalProducts, totalQuantity, categories);
+    }
+
+    private int categoryCode(Category category) {
+        return categoryDictionary.computeIfAbsent(category.getId(), id -> {
+            categoryIds.add(id);
+            return categoryIds.size() - 1;
+        });
+    }
+
+    private static int day(LocalDate date) {
+        return date == null ? NO_DATE : Math.toIntExact(date.toEpochDay());
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int length = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, length);
+        creationDays = Arrays.copyOf(creationDays, length);
+        deliveryDays = Arrays.copyOf(deliveryDays, length);
+        categoryCodes = Arrays.copyOf(categoryCodes, length);
+        artistCodes = Arrays.copyOf(artistCodes, length);
+        quantities = Arrays.copyOf(quantities, length);
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.museum.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сводная статистика по всему каталогу.
+ *
+ * @param products число продуктов
+ * @param quantity суммарное количество в наличии
+ * @param outOfStock число продуктов с нулевым количеством в наличии
+ * @param earliestCreationDate самая ранняя дата создания или {@code null} для пустого каталога
+ * @param latestCreationDate самая поздняя дата создания или {@code null} для пустого каталога
+ * @param categories число продуктов и количество в наличии по категориям, по убыванию числа продуктов
+ * @param artists число различных художников
+ * @param withoutArtist число продуктов без художника
+ * @param topArtists самые частые художники, по убыванию числа продуктов
+ * @param creationYears число продуктов по годам создания в порядке возрастания года
+ */
+public record CatalogStatistics(long products,
+                                long quantity,
+                                long outOfStock,
+                                LocalDate earliestCreationDate,
+                                LocalDate latestCreationDate,
+                                List<CategoryTotals> categories,
+                                int artists,
+                                long withoutArtist,
+                                List<ArtistCount> topArtists,
+                                Map<Integer, Long> creationYears) {
+
+    /**
+     * Итоги по категории.
+     *
+     * @param id идентификатор категории
+     * @param name название категории или {@code null}, если категория удалена во время подсчета
+     * @param products число продуктов
+     * @param quantity суммарное количество в наличии
+     */
+    public record CategoryTotals(Long id, String name, long products, long quantity) {
+    }
+
+    /**
+     * Число продуктов художника.
+     *
+     * @param artist художник
+     * @param products число продуктов
+     */
+    public record ArtistCount(String artist, long products) {
+    }
+}
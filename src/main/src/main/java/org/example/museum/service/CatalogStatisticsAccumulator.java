@@ -0,0 +1,162 @@
+package org.example.museum.service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Накопитель статистики каталога для параллельного подсчета.
+ * <p>
+ * Каждый поток подсчета ведет собственный накопитель без синхронизации, а в конце накопители
+ * объединяются методом {@link #merge(CatalogStatisticsAccumulator)}. Объединение ассоциативно
+ * и коммутативно, поэтому результат не зависит от того, как строки распределились между потоками.
+ */
+final class CatalogStatisticsAccumulator {
+
+    /**
+     * Пачка строк каталога в виде столбцов.
+     */
+    static final class Rows {
+        final long[] categoryIds;
+        final String[] artists;
+        final long[] creationDays;
+        final int[] quantities;
+        int size;
+
+        Rows(int capacity) {
+            categoryIds = new long[capacity];
+            artists = new String[capacity];
+            creationDays = new long[capacity];
+            quantities = new int[capacity];
+        }
+
+        boolean isFull() {
+            return size == quantities.length;
+        }
+
+        void add(long categoryId, String artist, LocalDate creationDate, int quantity) {
+            categoryIds[size] = categoryId;
+            artists[size] = artist;
+            creationDays[size] = creationDate.toEpochDay();
+            quantities[size] = quantity;
+            size++;
+        }
+    }
+
+    private long products;
+    private long quantity;
+    private long outOfStock;
+    private long withoutArtist;
+    private long earliestDay = Long.MAX_VALUE;
+    private long latestDay = Long.MIN_VALUE;
+    // Значения счетчиков — массивы, чтобы увеличивать их без повторной вставки в карту
+    private final Map<Long, long[]> categories = new HashMap<>();
+    private final Map<String, long[]> artists = new HashMap<>();
+    private final Map<Integer, long[]> creationYears = new HashMap<>();
+
+    /**
+     * Учитывает пачку строк.
+     */
+    void accept(Rows rows) {
+        for (int i = 0; i < rows.size; i++) {
+            int rowQuantity = rows.quantities[i];
+            long day = rows.creationDays[i];
+            products++;
+            quantity += rowQuantity;
+            if (rowQuantity == 0) {
+                outOfStock++;
+            }
+            earliestDay = Math.min(earliestDay, day);
+            latestDay = Math.max(latestDay, day);
+
+            long[] category = categories.computeIfAbsent(rows.categoryIds[i], id -> new long[2]);
+            category[0]++;
+            category[1] += rowQuantity;
+
+            String artist = rows.artists[i];
+            if (artist == null) {
+                withoutArtist++;
+            } else {
+                artists.computeIfAbsent(artist, a -> new long[1])[0]++;
+            }
+            creationYears.computeIfAbsent(LocalDate.ofEpochDay(day).getYear(), y -> new long[1])[0]++;
+        }
+    }
+
+    /**
+     * Добавляет к накопителю значения другого накопителя.
+     * Счетчики другого накопителя переносятся без копирования, поэтому после объединения его нельзя использовать.
+     *
+     * @return этот накопитель
+     */
+    CatalogStatisticsAccumulator merge(CatalogStatisticsAccumulator other) {
+        products += other.products;
+        quantity += other.quantity;
+        outOfStock += other.outOfStock;
+        withoutArtist += other.withoutArtist;
+        earliestDay = Math.min(earliestDay, other.earliestDay);
+        latestDay = Math.max(latestDay, other.latestDay);
+        other.categories.forEach((id, totals) -> {
+            long[] category = categories.putIfAbsent(id, totals);
+            if (category != null) {
+                category[0] += totals[0];
+                category[1] += totals[1];
+            }
+        });
+        mergeCounts(artists, other.artists);
+        mergeCounts(creationYears, other.creationYears);
+        return this;
+    }
+
+    /**
+     * Формирует итоговую статистику.
+     *
+     * @param categoryNames названия категорий по идентификатору
+     * @param topArtists сколько самых частых художников включить в результат
+     */
+    CatalogStatistics finish(Map<Long, String> categoryNames, int topArtists) {
+        List<CatalogStatistics.CategoryTotals> categoryTotals = new ArrayList<>();
+        categories.forEach((id, totals) ->
+                categoryTotals.add(new CatalogStatistics.CategoryTotals(id, categoryNames.get(id), totals[0], totals[1])));
+        categoryTotals.sort(Comparator.comparingLong(CatalogStatistics.CategoryTotals::products).reversed()
+                .thenComparing(CatalogStatistics.CategoryTotals::id));
+
+        Map<Integer, Long> years = new TreeMap<>();
+        creationYears.forEach((year, count) -> years.put(year, count[0]));
+
+        return new CatalogStatistics(products, quantity, outOfStock,
+                products == 0 ? null : LocalDate.ofEpochDay(earliestDay),
+                products == 0 ? null : LocalDate.ofEpochDay(latestDay),
+                categoryTotals, artists.size(), withoutArtist, topArtists(topArtists), years);
+    }
+
+    /**
+     * Выбирает самых частых художников кучей ограниченного размера, не сортируя всех художников.
+     */
+    private List<CatalogStatistics.ArtistCount> topArtists(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Comparator<CatalogStatistics.ArtistCount> order = Comparator
+                .comparingLong(CatalogStatistics.ArtistCount::products).reversed()
+                .thenComparing(CatalogStatistics.ArtistCount::artist);
+        PriorityQueue<CatalogStatistics.ArtistCount> top = new PriorityQueue<>(limit + 1, order.reversed());
+        artists.forEach((artist, count) -> {
+            top.add(new CatalogStatistics.ArtistCount(artist, count[0]));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<CatalogStatistics.ArtistCount> result = new ArrayList<>(top);
+        result.sort(order);
+        return result;
+    }
+
+    private static <K> void mergeCounts(Map<K, long[]> target, Map<K, long[]> source) {
+        source.forEach((key, count) -> {
+            long[] existing = target.putIfAbsent(key, count);
+            if (existing != null) {
+                existing[0] += count[0];
+            }
+        });
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.museum.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.museum.repository.CategoryRepository;
+import org.example.museum.repository.ProductRepository;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Сервис статистики по всему каталогу: итоги по категориям и художникам, распределение по годам создания
+ * и суммарное количество в наличии.
+ * <p>
+ * Каталог не загружается в память целиком. Строки читаются потоком JPA с заданным размером выборки
+ * ({@code museum.stats.fetch-size}), и из них выбираются только нужные столбцы, без сущностей.
+ * Поток запроса складывает строки в пачки по {@code museum.stats.chunk-size} и передает их через
+ * ограниченную очередь потокам подсчета. Каждый поток подсчета ведет собственный
+ * {@link CatalogStatisticsAccumulator}, а в конце накопители объединяются. Чтение из базы и подсчет идут
+ * одновременно, и в памяти находится не больше нескольких пачек на поток.
+ * <p>
+ * Транзакция только для чтения может выполняться на реплике, поэтому названия категорий тоже читаются
+ * отдельным запросом в ней, а не через {@link CategoryService}: так они не попадают в общие кэши Hibernate.
+ */
+@Service
+public class CatalogStatisticsService implements AutoCloseable {
+
+    /**
+     * Максимальное число художников в ответе.
+     */
+    public static final int MAX_TOP_ARTISTS = 1000;
+
+    // Признак конца строк для потоков подсчета
+    private static final CatalogStatisticsAccumulator.Rows END = new CatalogStatisticsAccumulator.Rows(0);
+
+    private final int parallelism;
+    private final ExecutorService workers;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${museum.stats.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${museum.stats.chunk-size:4096}")
+    private int chunkSize;
+
+    /**
+     * Создает сервис с пулом потоков подсчета.
+     *
+     * @param parallelism число потоков подсчета; 0 — по числу доступных процессоров.
+     */
+    public CatalogStatisticsService(@Value("${museum.stats.parallelism:0}") int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "catalog-stats-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Считает статистику каталога всеми потоками подсчета.
+     *
+     * @param topArtists сколько самых частых художников включить в результат, не более {@value #MAX_TOP_ARTISTS}.
+     * @return статистика каталога.
+     * @throws IllegalArgumentException если {@code topArtists} вне допустимого диапазона.
+     */
+    @Transactional(readOnly = true)
+    public CatalogStatistics compute(int topArtists) {
+        return compute(topArtists, parallelism);
+    }
+
+    /**
+     * Считает статистику каталога заданным числом потоков подсчета.
+     *
+     * @param topArtists сколько самых частых художников включить в результат, не более {@value #MAX_TOP_ARTISTS}.
+     * @param threads число потоков подсчета, не больше размера пула.
+     * @return статистика каталога.
+     * @throws IllegalArgumentException если {@code topArtists} или {@code threads} вне допустимого диапазона.
+     */
+    @Transactional(readOnly = true)
+    public CatalogStatistics compute(int topArtists, int threads) {
+        if (topArtists < 0 || topArtists > MAX_TOP_ARTISTS) {
+            throw new IllegalArgumentException("Число художников должно быть от 0 до " + MAX_TOP_ARTISTS);
+        }
+        if (threads < 1 || threads > parallelism) {
+            throw new IllegalArgumentException("Число потоков должно быть от 1 до " + parallelism);
+        }
+        Map<Long, String> categoryNames = new HashMap<>();
+        for (Object[] row : entityManager.createQuery(CategoryRepository.NAMES, Object[].class).getResultList()) {
+            categoryNames.put((Long) row[0], (String) row[1]);
+        }
+
+        BlockingQueue<CatalogStatisticsAccumulator.Rows> queue = new ArrayBlockingQueue<>(2 * threads);
+        List<Future<CatalogStatisticsAccumulator>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            futures.add(workers.submit(() -> accumulate(queue)));
+        }
+        try {
+            read(rows -> put(queue, rows, futures));
+            for (int i = 0; i < threads; i++) {
+                put(queue, END, futures);
+            }
+            CatalogStatisticsAccumulator total = futures.get(0).get();
+            for (int i = 1; i < threads; i++) {
+                total.merge(futures.get(i).get());
+            }
+            return total.finish(categoryNames, topArtists);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Подсчет статистики прерван", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Получатель пачек строк каталога.
+     */
+    @FunctionalInterface
+    private interface RowsConsumer {
+        void accept(CatalogStatisticsAccumulator.Rows rows) throws InterruptedException, ExecutionException;
+    }
+
+    /**
+     * Читает строки каталога и передает их пачками потребителю.
+     */
+    private void read(RowsConsumer consumer) throws InterruptedException, ExecutionException {
+        CatalogStatisticsAccumulator.Rows rows = new CatalogStatisticsAccumulator.Rows(chunkSize);
+        try (Stream<Object[]> stream = entityManager.createQuery(ProductRepository.STATISTICS_ROWS, Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream()) {
+            for (Object[] row : (Iterable<Object[]>) stream::iterator) {
+                rows.add((Long) row[0], (String) row[1], (LocalDate) row[2], (Integer) row[3]);
+                if (rows.isFull()) {
+                    consumer.accept(rows);
+                    rows = new CatalogStatisticsAccumulator.Rows(chunkSize);
+                }
+            }
+        }
+        if (rows.size > 0) {
+            consumer.accept(rows);
+        }
+    }
+
+    /**
+     * Ставит пачку в очередь. Пока очередь заполнена, проверяет, не завершился ли поток подсчета с ошибкой:
+     * иначе при падении всех потоков чтение ждало бы места в очереди бесконечно.
+     */
+    private static void put(BlockingQueue<CatalogStatisticsAccumulator.Rows> queue,
+                            CatalogStatisticsAccumulator.Rows rows,
+                            List<Future<CatalogStatisticsAccumulator>> futures)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(rows, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<CatalogStatisticsAccumulator> future : futures) {
+                if (future.isDone()) {
+                    future.get();
+                }
+            }
+        }
+    }
+
+    private static CatalogStatisticsAccumulator accumulate(BlockingQueue<CatalogStatisticsAccumulator.Rows> queue)
+            throws InterruptedException {
+        CatalogStatisticsAccumulator accumulator = new CatalogStatisticsAccumulator();
+        for (CatalogStatisticsAccumulator.Rows rows = queue.take(); rows != END; rows = queue.take()) {
+            accumulator.accept(rows);
+        }
+        return accumulator;
+    }
+
+    /**
+     * Останавливает потоки подсчета.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
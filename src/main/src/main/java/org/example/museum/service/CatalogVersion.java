@@ -0,0 +1,40 @@
+package org.example.museum.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версия каталога продуктов и категорий.
+ * <p>
+ * Счетчик увеличивается при каждом сохранении или удалении продукта и при сохранении категории.
+ * Сервисы увеличивают его после того, как все {@link ProductChangeListener} обновили свои данные:
+ * запрос, прочитавший новый ETag, видит и новые данные, а конкурентная запись может сделать ETag
+ * только старше ответа, но не наоборот.
+ * На его основе строятся ETag ответов API каталога: пока версия не изменилась, клиент может
+ * использовать ранее полученный ответ. В ETag также входит момент запуска приложения,
+ * чтобы после перезапуска версии не совпали со старыми.
+ */
+@Component
+public class CatalogVersion {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Увеличивает версию каталога.
+     */
+    public void increment() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Возвращает строгий ETag текущей версии каталога.
+     * Значение нужно получать до чтения данных, чтобы ответ не оказался старше своего ETag.
+     *
+     * @return ETag в кавычках
+     */
+    public String etag() {
+        return "\"" + Long.toString(epoch, 36) + "-" + version.get() + "\"";
+    }
+}
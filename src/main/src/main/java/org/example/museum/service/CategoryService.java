@@ -4,12 +4,19 @@ import org.example.museum.model.Category;
 import org.example.museum.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 /**
  * Сервис для работы с категориями продуктов.
  * Обеспечивает бизнес-логику для работы с сущностью {@link Category} и взаимодействует с {@link CategoryRepository}.
+ * Категории читаются из кэша второго уровня Hibernate, а список всех категорий — из кэша запросов
+ * (см. {@link CategoryRepository#findAll()}); Hibernate сбрасывает их при сохранении категории.
+ * <p>
+ * Методы чтения заполняют эти общие кэши, поэтому выполняются в обычных транзакциях на основной базе,
+ * а не на репликах: иначе отстающая реплика положила бы в кэш устаревшие категории для всех клиентов.
+ * При попадании в кэш запросов к базе нет и соединение не берется.
  */
 @Service
 public class CategoryService {
@@ -17,13 +24,17 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
     /**
      * Получает все категории продуктов.
      *
-     * @return Список всех категорий.
+     * @return Неизменяемый список всех категорий.
      */
+    @Transactional
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        return List.copyOf(categoryRepository.findAll());
     }
 
     /**
@@ -33,7 +44,9 @@ public class CategoryService {
      * @return Сохраненная категория.
      */
     public Category save(Category category) {
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        catalogVersion.increment();
+        return saved;
     }
 
     /**
@@ -42,6 +55,7 @@ public class CategoryService {
      * @param id Идентификатор категории.
      * @return Категория с заданным ID, или {@code null}, если категория не найдена.
      */
+    @Transactional
     public Category findById(Long id) {
         return categoryRepository.findById(id).orElse(null); // Если категория не найдена, возвращаем null
     }
@@ -0,0 +1,347 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Агрегаты количества экспонатов по датам поставки.
+ * <p>
+ * Для каждой даты хранятся число продуктов и сумма их количества в наличии. Агрегаты обновляются
+ * при сохранении и удалении продуктов, поэтому построение гистограммы читает только счетчики
+ * нужных дней. Окно дат вычисляется в момент запроса, так что смена суток не требует пересчета.
+ * <p>
+ * Счетчики хранятся в массивах по дням, начиная с самой ранней даты поставки, а суммы количества
+ * дополнительно ведутся в дереве Фенвика. Сумма за любой диапазон дат вычисляется за O(log n),
+ * поэтому недели и месяцы за годы поставок не требуют обхода всех дней. Когда дата поставки выходит
+ * за покрытый диапазон, массивы расширяются с запасом и дерево перестраивается за O(n).
+ * <p>
+ * Покрытый массивами диапазон не превышает {@value #MAX_DENSE_DAYS} дней, поэтому ошибочная дата вроде
+ * 9999-12-31 не раздувает массивы. Даты вне диапазона хранятся в разреженной отсортированной карте;
+ * когда диапазон расширяется, попавшие в него даты переносятся из карты в массивы.
+ */
+@Component
+public class DeliveryHistogram implements ProductChangeListener {
+
+    /**
+     * Максимальное число интервалов в одном ответе.
+     */
+    public static final int MAX_BUCKETS = 5000;
+
+    /**
+     * Минимальный запас в днях при расширении покрытого диапазона.
+     */
+    private static final int GROWTH_PADDING_DAYS = 366;
+
+    /**
+     * Наибольшая длина покрытого массивами диапазона в днях (около ста лет).
+     */
+    static final int MAX_DENSE_DAYS = 36_600;
+
+    /**
+     * Интервал группировки гистограммы.
+     */
+    public enum Bucket {
+        /**
+         * Календарный день.
+         */
+        DAY {
+            @Override
+            LocalDate start(LocalDate date) {
+                return date;
+            }
+
+            @Override
+            LocalDate next(LocalDate start) {
+                return start.plusDays(1);
+            }
+        },
+        /**
+         * Неделя с понедельника по воскресенье.
+         */
+        WEEK {
+            @Override
+            LocalDate start(LocalDate date) {
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+
+            @Override
+            LocalDate next(LocalDate start) {
+                return start.plusWeeks(1);
+            }
+        },
+        /**
+         * Календарный месяц.
+         */
+        MONTH {
+            @Override
+            LocalDate start(LocalDate date) {
+                return date.withDayOfMonth(1);
+            }
+
+            @Override
+            LocalDate next(LocalDate start) {
+                return start.plusMonths(1);
+            }
+        };
+
+        /**
+         * Возвращает первый день интервала, содержащего дату.
+         */
+        abstract LocalDate start(LocalDate date);
+
+        /**
+         * Возвращает первый день следующего интервала.
+         */
+        abstract LocalDate next(LocalDate start);
+    }
+
+    /**
+     * Вклад одного продукта в агрегаты.
+     */
+    private record Contribution(LocalDate deliveryDate, int quantity) {
+    }
+
+    /**
+     * Счетчики дня вне покрытого массивами диапазона.
+     */
+    private static final class DayTotals {
+        int products;
+        long quantity;
+    }
+
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+
+    // Эпоха-день элемента с индексом 0 и счетчики по дням начиная с него
+    private long firstDay;
+    private int[] products = new int[0];
+    private long[] quantities = new long[0];
+    private FenwickTree quantityTree = new FenwickTree(quantities);
+
+    // Дни вне диапазона массивов по эпоха-дням
+    private final NavigableMap<Long, DayTotals> sparse = new TreeMap<>();
+
+    /**
+     * Учитывает сохраненный продукт, заменяя его предыдущий вклад.
+     *
+     * @param product сохраненный продукт.
+     */
+    @Override
+    public synchronized void productSaved(Product product) {
+        remove(contributions.remove(product.getId()));
+        if (product.getDeliveryDate() != null) {
+            Contribution contribution = new Contribution(product.getDeliveryDate(), product.getQuantity());
+            contributions.put(product.getId(), contribution);
+            add(contribution.deliveryDate().toEpochDay(), 1, contribution.quantity());
+        }
+    }
+
+    /**
+     * Исключает удаленный продукт из агрегатов.
+     *
+     * @param id идентификатор удаленного продукта.
+     */
+    @Override
+    public synchronized void productDeleted(Long id) {
+        remove(contributions.remove(id));
+    }
+
+    /**
+     * Возвращает суммарное количество в наличии по датам поставки в диапазоне {@code [from, to]}.
+     * Даты без продуктов в результат не попадают.
+     *
+     * @param from первая дата диапазона (включительно).
+     * @param to последняя дата диапазона (включительно).
+     * @return карта "дата поставки — количество" в порядке возрастания дат.
+     */
+    public synchronized Map<LocalDate, Long> quantitiesBetween(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> result = new LinkedHashMap<>();
+        for (long epochDay = from.toEpochDay(); epochDay <= to.toEpochDay(); epochDay++) {
+            if (isDense(epochDay)) {
+                int index = (int) (epochDay - firstDay);
+                if (products[index] > 0) {
+                    result.put(LocalDate.ofEpochDay(epochDay), quantities[index]);
+                }
+            } else {
+                DayTotals totals = sparse.get(epochDay);
+                if (totals != null) {
+                    result.put(LocalDate.ofEpochDay(epochDay), totals.quantity);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает суммарное количество в наличии по интервалам в диапазоне {@code [from, to]}.
+     * <p>
+     * В результат попадают все интервалы, пересекающиеся с диапазоном, в том числе пустые.
+     * Ключ — первый день интервала (для недель и месяцев он может предшествовать {@code from}),
+     * значение — сумма только по дням внутри диапазона.
+     *
+     * @param from первая дата диапазона (включительно).
+     * @param to последняя дата диапазона (включительно).
+     * @param bucket интервал группировки.
+     * @return карта "начало интервала — количество" в порядке возрастания дат.
+     * @throws IllegalArgumentException если {@code from} позже {@code to} или интервалов больше {@value #MAX_BUCKETS}.
+     */
+    public synchronized Map<LocalDate, Long> quantitiesByBucket(LocalDate from, LocalDate to, Bucket bucket) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже его конца: " + from + " > " + to);
+        }
+        Map<LocalDate, Long> result = new LinkedHashMap<>();
+        for (LocalDate start = bucket.start(from); !start.isAfter(to); start = bucket.next(start)) {
+            if (result.size() == MAX_BUCKETS) {
+                throw new IllegalArgumentException("Слишком много интервалов, максимум " + MAX_BUCKETS);
+            }
+            LocalDate next = bucket.next(start);
+            LocalDate lo = start.isBefore(from) ? from : start;
+            LocalDate hi = next.isAfter(to) ? to : next.minusDays(1);
+            result.put(start, sum(lo.toEpochDay(), hi.toEpochDay()));
+        }
+        return result;
+    }
+
+    /**
+     * Сумма количества за дни {@code [fromDay, toDay]}, заданные эпоха-днями.
+     */
+    private long sum(long fromDay, long toDay) {
+        int lo = Math.max(indexOf(fromDay), 0);
+        int hi = Math.min(indexOf(toDay), quantities.length - 1);
+        long sum = lo > hi ? 0 : quantityTree.sum(lo, hi);
+        for (DayTotals totals : sparse.subMap(fromDay, true, toDay, true).values()) {
+            sum += totals.quantity;
+        }
+        return sum;
+    }
+
+    private void remove(Contribution contribution) {
+        if (contribution != null) {
+            add(contribution.deliveryDate().toEpochDay(), -1, -contribution.quantity());
+        }
+    }
+
+    /**
+     * Изменяет счетчики дня, расширяя покрытый массивами диапазон, если это возможно.
+     */
+    private void add(long epochDay, int productsDelta, long quantityDelta) {
+        int index = cover(epochDay);
+        if (index >= 0) {
+            products[index] += productsDelta;
+            quantities[index] += quantityDelta;
+            quantityTree.add(index, quantityDelta);
+            return;
+        }
+        DayTotals totals = sparse.computeIfAbsent(epochDay, day -> new DayTotals());
+        totals.products += productsDelta;
+        totals.quantity += quantityDelta;
+        if (totals.products == 0) {
+            sparse.remove(epochDay);
+        }
+    }
+
+    private boolean isDense(long epochDay) {
+        return epochDay >= firstDay && epochDay - firstDay < quantities.length;
+    }
+
+    private int indexOf(long epochDay) {
+        long index = epochDay - firstDay;
+        if (index < 0) {
+            return -1;
+        }
+        return (int) Math.min(index, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Расширяет массивы так, чтобы они покрывали указанный день, и возвращает его индекс,
+     * или -1, если диапазон массивов превысил бы {@value #MAX_DENSE_DAYS} дней.
+     */
+    private int cover(long epochDay) {
+        if (isDense(epochDay)) {
+            return (int) (epochDay - firstDay);
+        }
+        long lastDay = firstDay + quantities.length - 1;
+        long neededFirstDay = quantities.length == 0 ? epochDay : Math.min(firstDay, epochDay);
+        long neededLastDay = quantities.length == 0 ? epochDay : Math.max(lastDay, epochDay);
+        long neededLength = neededLastDay - neededFirstDay + 1;
+        if (neededLength > MAX_DENSE_DAYS) {
+            return -1;
+        }
+        long padding = Math.min(Math.max(GROWTH_PADDING_DAYS, quantities.length / 2), (MAX_DENSE_DAYS - neededLength) / 2);
+        long newFirstDay = quantities.length == 0 ? epochDay - padding : Math.min(firstDay, epochDay - padding);
+        long newLastDay = quantities.length == 0 ? epochDay + padding : Math.max(lastDay, epochDay + padding);
+        int length = (int) (newLastDay - newFirstDay + 1);
+        int shift = (int) (firstDay - newFirstDay);
+
+        int[] newProducts = new int[length];
+        long[] newQuantities = new long[length];
+        if (quantities.length > 0) {
+            System.arraycopy(products, 0, newProducts, shift, products.length);
+            System.arraycopy(quantities, 0, newQuantities, shift, quantities.length);
+        }
+        // Дни из разреженной карты, попавшие в новый диапазон, переносятся в массивы
+        NavigableMap<Long, DayTotals> covered = sparse.subMap(newFirstDay, true, newLastDay, true);
+        covered.forEach((day, totals) -> {
+            newProducts[(int) (day - newFirstDay)] += totals.products;
+            newQuantities[(int) (day - newFirstDay)] += totals.quantity;
+        });
+        covered.clear();
+        firstDay = newFirstDay;
+        products = newProducts;
+        quantities = newQuantities;
+        quantityTree = new FenwickTree(quantities);
+        return (int) (epochDay - firstDay);
+    }
+
+    /**
+     * Дерево Фенвика для сумм на отрезках массива с точечными изменениями за O(log n).
+     */
+    private static final class FenwickTree {
+
+        // Индексация с единицы: tree[i] хранит сумму элементов (i - lowbit(i), i]
+        private final long[] tree;
+
+        /**
+         * Строит дерево по значениям массива за O(n).
+         */
+        FenwickTree(long[] values) {
+            tree = new long[values.length + 1];
+            for (int i = 1; i <= values.length; i++) {
+                tree[i] += values[i - 1];
+                int parent = i + (i & -i);
+                if (parent <= values.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+
+        void add(int index, long delta) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        long sum(int from, int to) {
+            return prefix(to) - prefix(from - 1);
+        }
+
+        /**
+         * Сумма элементов с индексами {@code [0, index]}.
+         */
+        private long prefix(int index) {
+            long sum = 0;
+            for (int i = index + 1; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.example.museum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.museum.model.ProductSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Лента изменений каталога для подписчиков Server-Sent Events.
+ * <p>
+ * Каждое {@link ProductChangedEvent} сериализуется один раз и рассылается всем подписчикам событием
+ * с именем {@code created}, {@code updated} или {@code deleted}. Для созданных и обновленных продуктов
+ * данные события — краткое представление {@link ProductSummary}, для удаленных — {@code {"id": ...}}.
+ * <p>
+ * Идентификаторы событий имеют вид {@code "<запуск>-<номер>"}. Последние события хранятся в кольцевом буфере:
+ * переподключившийся клиент передает заголовок {@code Last-Event-ID} и получает пропущенные события.
+ * Если пропущенных событий в буфере уже нет или приложение перезапускалось, клиенту отправляется событие
+ * {@code reset}, после которого каталог нужно загрузить заново.
+ * <p>
+ * Подписка не занимает поток: соединение удерживается асинхронным запросом. Один поток рассылки нумерует
+ * события и ведет буфер, поэтому порядок событий одинаков у всех подписчиков, но сам в соединения не пишет:
+ * он раскладывает события по очередям подписчиков. Очередь каждого подписчика отправляет свой виртуальный
+ * поток, поэтому медленный или зависший клиент задерживает только себя. Очередь ограничена: подписчик,
+ * не успевающий принимать события, отключается и при переподключении догоняет ленту по {@code Last-Event-ID}.
+ * Периодический комментарий {@code heartbeat} поддерживает соединения через прокси и выявляет отключившихся клиентов.
+ */
+@Component
+public class ProductChangeFeed implements AutoCloseable {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "product-change-feed"));
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("product-change-feed-sender-", 0).factory());
+
+    // Изменяются только в потоке рассылки
+    private final Deque<FeedEvent> history = new ArrayDeque<>();
+    private long sequence;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${museum.changes.history-size:1000}")
+    private int historySize;
+
+    @Value("${museum.changes.subscriber-queue:256}")
+    private int subscriberQueue;
+
+    /**
+     * Подписывает клиента на изменения каталога.
+     *
+     * @param lastEventId идентификатор последнего полученного клиентом события или {@code null}
+     * @return SseEmitter нового подписчика
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        return subscribe(new SseEmitter(), lastEventId);
+    }
+
+    /**
+     * Подписывает переданное соединение на изменения каталога.
+     */
+    SseEmitter subscribe(SseEmitter emitter, String lastEventId) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscribers.remove(subscriber));
+        dispatcher.execute(() -> {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        });
+        return emitter;
+    }
+
+    /**
+     * Возвращает число активных подписчиков.
+     *
+     * @return число подписчиков
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Принимает изменение каталога и ставит его в очередь рассылки.
+     *
+     * @param event изменение продукта
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        String name = event.type().name().toLowerCase(Locale.ROOT);
+        Object data = event.product() != null ? ProductSummary.of(event.product()) : Map.of("id", event.id());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        dispatcher.execute(() -> publish(name, json));
+    }
+
+    /**
+     * Отправляет подписчикам комментарий для поддержания соединения.
+     */
+    @Scheduled(fixedDelayString = "${museum.changes.heartbeat-ms:30000}")
+    public void heartbeat() {
+        dispatcher.execute(() -> subscribers.forEach(subscriber -> subscriber.enqueue(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    /**
+     * Завершает соединения подписчиков и останавливает поток рассылки.
+     */
+    @Override
+    public void close() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> complete(subscriber.emitter));
+        subscribers.clear();
+    }
+
+    private void publish(String name, String json) {
+        FeedEvent event = new FeedEvent(++sequence, name, json);
+        history.addLast(event);
+        if (history.size() > historySize) {
+            history.removeFirst();
+        }
+        subscribers.forEach(subscriber -> subscriber.enqueue(event.toSse(epoch)));
+    }
+
+    /**
+     * Ставит в очередь подписчика события после {@code lastEventId}.
+     */
+    private void replay(Subscriber subscriber, String lastEventId) {
+        long last = parseSequence(lastEventId);
+        long oldest = history.isEmpty() ? sequence + 1 : history.getFirst().sequence();
+        if (last < 0 || last > sequence || last + 1 < oldest) {
+            subscriber.enqueue(SseEmitter.event().id(epoch + "-" + sequence).name("reset").data("{}", MediaType.APPLICATION_JSON));
+            return;
+        }
+        for (FeedEvent event : history) {
+            if (event.sequence() > last) {
+                subscriber.enqueue(event.toSse(epoch));
+            }
+        }
+    }
+
+    /**
+     * Возвращает номер события этого запуска или -1, если идентификатор от другого запуска или некорректен.
+     */
+    private long parseSequence(String eventId) {
+        int dash = eventId.lastIndexOf('-');
+        if (dash < 0 || !eventId.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void complete(SseEmitter emitter) {
+        try {
+            emitter.complete();
+        } catch (IllegalStateException e) {
+            // Соединение уже закрыто контейнером при остановке веб-сервера
+        }
+    }
+
+    /**
+     * Подписчик с очередью неотправленных событий.
+     * <p>
+     * События ставит в очередь поток рассылки, отправляет их виртуальный поток подписчика; одновременно
+     * очередь отправляет не более одного потока, поэтому порядок событий сохраняется. Очередь вмещает
+     * весь буфер истории для догоняющего клиента и еще {@code museum.changes.subscriber-queue} событий.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(historySize + subscriberQueue);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Ставит событие в очередь или отключает подписчика, если очередь заполнена.
+         */
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                close(null);
+                return;
+            }
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        close(e);
+                        return;
+                    }
+                }
+                sending.set(false);
+                // Событие могло попасть в очередь после последней проверки, но до сброса флага
+            } while (!closed && !queue.isEmpty() && sending.compareAndSet(false, true));
+        }
+
+        /**
+         * Отключает подписчика. Соединение завершается в потоке отправки: запись в зависшее соединение
+         * удерживает его до ошибки записи, и поток рассылки не должен ее ждать.
+         */
+        private void close(Exception error) {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            if (error != null) {
+                emitter.completeWithError(error);
+            } else {
+                senders.execute(() -> complete(emitter));
+            }
+        }
+    }
+
+    private record FeedEvent(long sequence, String name, String json) {
+
+        SseEmitter.SseEventBuilder toSse(String epoch) {
+            return SseEmitter.event().id(epoch + "-" + sequence).name(name).data(json, MediaType.APPLICATION_JSON);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Product;
+
+/**
+ * Слушатель изменений каталога экспонатов.
+ * <p>
+ * Реализации поддерживают производные структуры данных (индексы, агрегаты) в актуальном состоянии.
+ * {@link ProductService} вызывает слушателей после каждого сохранения и удаления продукта,
+ * а также при первичной загрузке каталога после старта приложения.
+ */
+public interface ProductChangeListener {
+
+    /**
+     * Вызывается после сохранения (создания или обновления) продукта.
+     *
+     * @param product сохраненный продукт с присвоенным идентификатором.
+     */
+    void productSaved(Product product);
+
+    /**
+     * Вызывается после удаления продукта.
+     *
+     * @param id идентификатор удаленного продукта.
+     */
+    void productDeleted(Long id);
+}
@@ -0,0 +1,33 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Product;
+
+/**
+ * Событие изменения каталога, публикуемое {@link ProductService} после создания, обновления
+ * или удаления продукта.
+ *
+ * @param type вид изменения
+ * @param id идентификатор продукта
+ * @param product продукт после изменения, или {@code null} для удаленного продукта
+ */
+public record ProductChangedEvent(Type type, Long id, Product product) {
+
+    /**
+     * Вид изменения продукта.
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    static ProductChangedEvent created(Product product) {
+        return new ProductChangedEvent(Type.CREATED, product.getId(), product);
+    }
+
+    static ProductChangedEvent updated(Product product) {
+        return new ProductChangedEvent(Type.UPDATED, product.getId(), product);
+    }
+
+    static ProductChangedEvent deleted(Long id) {
+        return new ProductChangedEvent(Type.DELETED, id, null);
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.museum.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.museum.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Сервис выгрузки всего каталога в CSV или NDJSON.
+ * <p>
+ * Продукты читаются курсором ({@link ProductService#forEachProduct}) и записываются в выходной поток
+ * по одному, поэтому расход памяти не зависит от размера каталога. Формат строк совпадает с форматом
+ * пакетной загрузки ({@link ProductIngestService}), так что выгрузку можно загрузить обратно.
+ * <p>
+ * Каждые {@code museum.export.flush-rows} строк выходной поток сбрасывается. Так клиент получает
+ * данные равномерно, а отключение клиента обнаруживается при ближайшем сбросе: ошибка записи
+ * прекращает чтение и закрывает курсор.
+ */
+@Service
+public class ProductExportService {
+
+    private static final String CSV_HEADER = "id,name,artist,creationDate,category,manufacturer,quantity,deliveryDate";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${museum.export.flush-rows:1000}")
+    private int flushRows;
+
+    /**
+     * Записывает все продукты в поток в порядке возрастания идентификатора. Поток не закрывается.
+     *
+     * @param out выходной поток.
+     * @param format формат выгрузки.
+     * @return число выгруженных продуктов.
+     * @throws IOException если запись в поток не удалась, например клиент отключился.
+     */
+    public long export(OutputStream out, ProductIngestService.Format format) throws IOException {
+        RowWriter writer = format == ProductIngestService.Format.CSV ? csvWriter(out) : ndjsonWriter(out);
+        long[] rows = new long[1];
+        try {
+            productService.forEachProduct(product -> {
+                try {
+                    writer.write(product);
+                    if (++rows[0] % flushRows == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return rows[0];
+    }
+
+    /**
+     * Запись продуктов в одном из форматов выгрузки.
+     */
+    private interface RowWriter {
+        void write(Product product) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static RowWriter csvWriter(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        return new RowWriter() {
+            @Override
+            public void write(Product product) throws IOException {
+                writer.write(String.valueOf(product.getId()));
+                writer.write(',');
+                writeCsvValue(writer, product.getName());
+                writer.write(',');
+                writeCsvValue(writer, product.getArtist());
+                writer.write(',');
+                writeCsvValue(writer, product.getCreationDate());
+                writer.write(',');
+                writeCsvValue(writer, product.getCategory().getName());
+                writer.write(',');
+                writeCsvValue(writer, product.getManufacturer());
+                writer.write(',');
+                writer.write(String.valueOf(product.getQuantity()));
+                writer.write(',');
+                writeCsvValue(writer, product.getDeliveryDate());
+                writer.write('\n');
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+            }
+        };
+    }
+
+    private RowWriter ndjsonWriter(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Без сброса после каждого объекта: поток сбрасывается раз в museum.export.flush-rows строк
+        ObjectWriter writer = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return new RowWriter() {
+            @Override
+            public void write(Product product) throws IOException {
+                writer.writeValue(generator, product);
+                generator.writeRaw('\n');
+            }
+
+            @Override
+            public void flush() throws IOException {
+                generator.flush();
+            }
+        };
+    }
+
+    /**
+     * Записывает значение CSV. Значение с запятой, кавычкой или переводом строки заключается в кавычки,
+     * кавычка внутри значения удваивается; {@code null} записывается пустым значением.
+     */
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.museum.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отчет о пакетной загрузке продуктов.
+ * <p>
+ * Содержит число добавленных и отклоненных строк, а также описания ошибок по строкам.
+ * Чтобы отчет не рос вместе с размером загрузки, хранятся только первые {@value #MAX_ERRORS} ошибок.
+ */
+public class ProductIngestReport {
+
+    /**
+     * Максимальное число ошибок, описания которых попадают в отчет.
+     */
+    public static final int MAX_ERRORS = 1000;
+
+    /**
+     * Ошибка в одной строке загружаемых данных.
+     *
+     * @param line номер строки во входных данных, начиная с 1
+     * @param message описание ошибки
+     */
+    public record RowError(long line, String message) {
+    }
+
+    private long inserted;
+    private long rejected;
+    private final List<RowError> errors = new ArrayList<>();
+
+    /**
+     * Учитывает успешно добавленные строки.
+     *
+     * @param count число добавленных строк
+     */
+    void addInserted(long count) {
+        inserted += count;
+    }
+
+    /**
+     * Учитывает отклоненную строку.
+     *
+     * @param line номер строки
+     * @param message описание ошибки
+     */
+    void addError(long line, String message) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    /**
+     * @return число добавленных продуктов
+     */
+    public long getInserted() {
+        return inserted;
+    }
+
+    /**
+     * @return число отклоненных строк
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return описания ошибок (не более {@value #MAX_ERRORS})
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,376 @@
+package org.example.museum.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Сервис пакетной загрузки продуктов из CSV или NDJSON.
+ * <p>
+ * Входные данные читаются построчно и вставляются пакетами JDBC заданного размера, поэтому в памяти
+ * одновременно находится не более одного пакета. Hibernate не может группировать вставки сущностей
+ * с {@code GenerationType.IDENTITY}, поэтому вставка выполняется напрямую через JDBC: идентификаторы
+ * по-прежнему назначает база данных, и драйвер возвращает их для всего пакета
+ * (вместе с {@code rewriteBatchedStatements=true} пакет уходит одним многострочным INSERT).
+ * <p>
+ * Ошибочные строки попадают в отчет и не прерывают загрузку. Каждый пакет вставляется в своей транзакции.
+ * Если пакет отклонен базой данных, транзакция откатывается, и строки пакета вставляются по одной,
+ * чтобы отклонить только те, что действительно содержат ошибку. Без отката драйвер мог бы успеть
+ * зафиксировать часть строк пакета до ошибки, и построчная вставка продублировала бы их.
+ */
+@Service
+public class ProductIngestService {
+
+    private static final String INSERT_SQL = "INSERT INTO product "
+            + "(name, artist, creation_date, category_id, manufacturer, quantity, delivery_date, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+    /**
+     * Поддерживаемые форматы входных данных.
+     */
+    public enum Format {
+        /**
+         * CSV с обязательной строкой заголовка.
+         */
+        CSV,
+        /**
+         * Один JSON-объект на строку.
+         */
+        NDJSON
+    }
+
+    /**
+     * Строка входных данных, успешно разобранная в продукт.
+     */
+    private record Row(long line, Product product) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private List<ProductChangeListener> changeListeners;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${museum.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${museum.ingest.max-record-lines:100}")
+    private int maxRecordLines;
+
+    /**
+     * Загружает продукты из потока.
+     * <p>
+     * Поля строки: {@code name}, {@code artist}, {@code creationDate}, {@code category} (название категории),
+     * {@code manufacturer}, {@code quantity}, {@code deliveryDate}. Для CSV первая строка содержит названия
+     * столбцов в любом порядке; значение в кавычках может переноситься на следующие строки, перевод строки
+     * внутри него читается как {@code \n}, а номер строки в отчете — номер первой строки записи.
+     * Запись CSV занимает не больше {@code museum.ingest.max-record-lines} строк: если кавычка не закрылась
+     * в этих пределах или до конца потока, запись попадает в отчет как ошибочная, а следующие за ее
+     * первой строкой строки читаются заново как отдельные записи. Неизвестные категории создаются.
+     *
+     * @param input входные данные в кодировке UTF-8.
+     * @param format формат входных данных.
+     * @return отчет о загрузке.
+     * @throws IOException если поток не удалось прочитать.
+     */
+    public ProductIngestReport ingest(InputStream input, Format format) throws IOException {
+        ProductIngestReport report = new ProductIngestReport();
+        Map<String, Category> categories = new HashMap<>();
+        for (Category category : categoryService.getAllCategories()) {
+            categories.putIfAbsent(category.getName(), category);
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        // Строки незакрытой записи, которые нужно прочитать заново
+        Deque<String> pending = new ArrayDeque<>();
+        List<Row> batch = new ArrayList<>(batchSize);
+        List<String> header = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = readLine(reader, pending)) != null) {
+            long recordLine = ++lineNumber;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && countQuotes(line) % 2 != 0) {
+                List<String> continuation = new ArrayList<>();
+                StringBuilder record = new StringBuilder(line);
+                int quotes = countQuotes(line);
+                String next;
+                while (quotes % 2 != 0 && continuation.size() < maxRecordLines - 1
+                        && (next = readLine(reader, pending)) != null) {
+                    continuation.add(next);
+                    record.append('\n').append(next);
+                    quotes += countQuotes(next);
+                }
+                if (quotes % 2 != 0) {
+                    report.addError(recordLine, "Значение в кавычках не закрыто в пределах " + maxRecordLines + " строк");
+                    for (int i = continuation.size() - 1; i >= 0; i--) {
+                        pending.addFirst(continuation.get(i));
+                    }
+                    continue;
+                }
+                line = record.toString();
+                lineNumber += continuation.size();
+            }
+            if (format == Format.CSV && header == null) {
+                header = parseCsvLine(line);
+                continue;
+            }
+            try {
+                Map<String, String> fields = format == Format.CSV ? csvFields(header, line) : jsonFields(line);
+                batch.add(new Row(recordLine, toProduct(fields, categories)));
+            } catch (IllegalArgumentException | DateTimeParseException | IOException e) {
+                report.addError(recordLine, e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                insert(batch, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch, report);
+        }
+        return report;
+    }
+
+    /**
+     * Вставляет пакет одним JDBC-пакетом в транзакции, а при ошибке — после отката транзакции построчно.
+     */
+    private void insert(List<Row> batch, ProductIngestReport report) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(insertStatement(),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            bind(ps, batch.get(i).product());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    }, keys));
+        } catch (DataAccessException e) {
+            batch.forEach(row -> insertRow(row, report));
+            return;
+        }
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        for (int i = 0; i < batch.size(); i++) {
+            Product product = batch.get(i).product();
+            product.setId(((Number) keyList.get(i).values().iterator().next()).longValue());
+            inserted(product);
+        }
+        report.addInserted(batch.size());
+    }
+
+    private void insertRow(Row row, ProductIngestReport report) {
+        KeyHolder key = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = insertStatement().createPreparedStatement(connection);
+                bind(ps, row.product());
+                return ps;
+            }, key);
+        } catch (DataAccessException e) {
+            report.addError(row.line(), e.getMostSpecificCause().getMessage());
+            return;
+        }
+        row.product().setId(Objects.requireNonNull(key.getKey()).longValue());
+        inserted(row.product());
+        report.addInserted(1);
+    }
+
+    private void inserted(Product product) {
+        changeListeners.forEach(listener -> listener.productSaved(product));
+        // Версия каталога увеличивается после обновления кэшей обработчиками
+        catalogVersion.increment();
+        eventPublisher.publishEvent(ProductChangedEvent.created(product));
+    }
+
+    private static PreparedStatementCreator insertStatement() {
+        return connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    private static void bind(PreparedStatement ps, Product product) throws SQLException {
+        ps.setString(1, product.getName());
+        ps.setString(2, product.getArtist());
+        ps.setDate(3, Date.valueOf(product.getCreationDate()));
+        ps.setLong(4, product.getCategory().getId());
+        ps.setString(5, product.getManufacturer());
+        ps.setInt(6, product.getQuantity());
+        if (product.getDeliveryDate() != null) {
+            ps.setDate(7, Date.valueOf(product.getDeliveryDate()));
+        } else {
+            ps.setNull(7, Types.DATE);
+        }
+    }
+
+    /**
+     * Строит продукт из полей строки, создавая категорию при необходимости.
+     */
+    private Product toProduct(Map<String, String> fields, Map<String, Category> categories) {
+        Product product = new Product();
+        product.setName(required(fields, "name"));
+        product.setArtist(optional(fields, "artist"));
+        product.setCreationDate(LocalDate.parse(required(fields, "creationDate")));
+        product.setManufacturer(required(fields, "manufacturer"));
+        String quantity = optional(fields, "quantity");
+        if (quantity != null) {
+            try {
+                product.setQuantity(Integer.parseInt(quantity));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректное значение поля quantity: " + quantity);
+            }
+        }
+        String deliveryDate = optional(fields, "deliveryDate");
+        product.setDeliveryDate(deliveryDate != null ? LocalDate.parse(deliveryDate) : null);
+
+        String categoryName = required(fields, "category");
+        product.setCategory(categories.computeIfAbsent(categoryName, name -> {
+            Category category = new Category();
+            category.setName(name);
+            return categoryService.save(category);
+        }));
+        return product;
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = optional(fields, name);
+        if (value == null) {
+            throw new IllegalArgumentException("Не заполнено обязательное поле " + name);
+        }
+        return value;
+    }
+
+    private static String optional(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private Map<String, String> jsonFields(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Строка не является JSON-объектом");
+        }
+        Map<String, String> fields = new HashMap<>();
+        node.fields().forEachRemaining(field -> {
+            JsonNode value = field.getValue();
+            if (field.getKey().equals("category") && value.isObject()) {
+                value = value.path("name");
+            }
+            fields.put(field.getKey(), value.isNull() || value.isMissingNode() ? null : value.asText());
+        });
+        return fields;
+    }
+
+    private static Map<String, String> csvFields(List<String> header, String line) {
+        List<String> values = parseCsvLine(line);
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("Ожидалось столбцов: " + header.size() + ", получено: " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            fields.put(header.get(i).trim(), values.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * Возвращает следующую строку: сначала из строк, отложенных для повторного чтения, затем из потока.
+     */
+    private static String readLine(BufferedReader reader, Deque<String> pending) throws IOException {
+        return pending.isEmpty() ? reader.readLine() : pending.poll();
+    }
+
+    /**
+     * Считает кавычки в строке CSV. Значение в кавычках остается незакрытым, пока их число в записи нечетное:
+     * удвоенная кавычка внутри значения не меняет четность.
+     */
+    private static int countQuotes(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Разбирает строку CSV с разделителем-запятой. Значения могут быть заключены в двойные кавычки,
+     * кавычка внутри значения удваивается.
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытая кавычка в строке CSV");
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
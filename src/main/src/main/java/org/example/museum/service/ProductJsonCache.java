@@ -0,0 +1,132 @@
+package org.example.museum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.museum.model.Product;
+import org.example.museum.model.ProductSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Кэш JSON-представлений продуктов.
+ * <p>
+ * Для каждого продукта хранится готовый JSON краткого представления {@link ProductSummary} вместе с версией
+ * продукта, из которой он получен. Кэш заполняется при старте приложения и обновляется из {@link ProductService}
+ * при сохранении и удалении, поэтому списки продуктов собираются из готовых байтов без обращения к Jackson.
+ * Запись более старой версии продукта не заменяет уже сохраненную более новую.
+ * <p>
+ * Названия категорий после создания не меняются, поэтому изменения категорий кэш не отслеживает.
+ */
+@Component
+public class ProductJsonCache implements ProductChangeListener {
+
+    private final NavigableMap<Long, CachedRow> rows = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Сериализует продукт и сохраняет его JSON в кэше.
+     *
+     * @param product сохраненный продукт.
+     */
+    @Override
+    public void productSaved(Product product) {
+        CachedRow row = new CachedRow(product.getId(), product.getVersion(), encode(product));
+        rows.merge(product.getId(), row, (old, updated) -> old.version() > updated.version() ? old : updated);
+    }
+
+    /**
+     * Удаляет JSON продукта из кэша.
+     *
+     * @param id идентификатор удаленного продукта.
+     */
+    @Override
+    public void productDeleted(Long id) {
+        rows.remove(id);
+    }
+
+    /**
+     * Возвращает JSON всех продуктов.
+     *
+     * @return список записей в порядке возрастания идентификатора.
+     */
+    public List<CachedRow> all() {
+        return List.copyOf(rows.values());
+    }
+
+    /**
+     * Возвращает JSON продуктов с указанными идентификаторами.
+     * Идентификаторы, отсутствующие в кэше, пропускаются.
+     *
+     * @param ids идентификаторы продуктов.
+     * @return список записей в порядке следования идентификаторов.
+     */
+    public List<CachedRow> get(Collection<Long> ids) {
+        List<CachedRow> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CachedRow row = rows.get(id);
+            if (row != null) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает JSON продуктов с идентификатором больше {@code after}.
+     *
+     * @param after идентификатор, после которого начинается выборка.
+     * @param limit максимальное число продуктов.
+     * @return список записей в порядке возрастания идентификатора.
+     */
+    public List<CachedRow> after(long after, int limit) {
+        return rows.tailMap(after, false).values().stream().limit(limit).toList();
+    }
+
+    /**
+     * Записывает JSON-массив из готовых записей.
+     * Результат совпадает по байтам с сериализацией списка {@link ProductSummary} через {@link ObjectMapper}.
+     *
+     * @param out поток для записи.
+     * @param rows записи элементов массива.
+     * @throws IOException если запись в поток не удалась.
+     */
+    public static void writeArray(OutputStream out, List<CachedRow> rows) throws IOException {
+        out.write('[');
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(rows.get(i).json());
+        }
+        out.write(']');
+    }
+
+    private byte[] encode(Product product) {
+        try {
+            return objectMapper.writeValueAsBytes(ProductSummary.of(product));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * JSON продукта в кэше.
+     *
+     * @param id идентификатор продукта.
+     * @param version версия продукта, из которой получен JSON.
+     * @param json краткое представление продукта в JSON (UTF-8).
+     */
+    public record CachedRow(Long id, long version, byte[] json) {
+    }
+}
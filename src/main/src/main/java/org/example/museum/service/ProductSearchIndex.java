@@ -0,0 +1,142 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный триграммный индекс для поиска продуктов по ключевому слову.
+ * <p>
+ * Для каждого продукта индексируется строка {@code "id name artist creationDate"} — та же, что раньше
+ * собиралась через {@code CONCAT} в запросе {@code ProductRepository.search}. Поиск сохраняет прежнюю
+ * семантику: регистронезависимое вхождение подстроки. Триграммы лишь сужают множество кандидатов,
+ * окончательная проверка выполняется по самой строке документа.
+ * Индекс строится при старте приложения и обновляется из {@link ProductService} при сохранении и удалении.
+ */
+@Component
+public class ProductSearchIndex implements ProductChangeListener {
+
+    private static final int GRAM = 3;
+
+    private final Map<Long, String> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Добавляет продукт в индекс или обновляет его запись.
+     *
+     * @param product сохраненный продукт.
+     */
+    @Override
+    public void productSaved(Product product) {
+        String document = document(product);
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            if (document != null) {
+                documents.put(product.getId(), document);
+                for (String gram : grams(document)) {
+                    postings.computeIfAbsent(gram, g -> new HashSet<>()).add(product.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет продукт из индекса.
+     *
+     * @param id идентификатор удаленного продукта.
+     */
+    @Override
+    public void productDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет продукты, строка которых содержит ключевое слово.
+     *
+     * @param keyword ключевое слово для поиска.
+     * @return идентификаторы найденных продуктов в порядке возрастания.
+     */
+    public List<Long> search(String keyword) {
+        String needle = keyword.toLowerCase(Locale.ROOT);
+        List<Long> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Collection<Long> candidates = needle.length() < GRAM ? documents.keySet() : candidates(needle);
+            for (Long id : candidates) {
+                if (documents.get(id).contains(needle)) {
+                    result.add(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Возвращает самый короткий список кандидатов среди триграмм ключевого слова.
+     * Если хотя бы одной триграммы нет в индексе, совпадений быть не может.
+     */
+    private Collection<Long> candidates(String needle) {
+        Set<Long> smallest = null;
+        for (String gram : grams(needle)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    private void removeDocument(Long id) {
+        String previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Собирает индексируемую строку продукта.
+     * Как и {@code CONCAT} в SQL, возвращает {@code null}, если хотя бы одно из полей не заполнено.
+     */
+    private static String document(Product product) {
+        if (product.getName() == null || product.getArtist() == null || product.getCreationDate() == null) {
+            return null;
+        }
+        return (product.getId() + " " + product.getName() + " " + product.getArtist() + " " + product.getCreationDate())
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,52 +1,361 @@
 package org.example.museum.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.example.museum.model.Category;
 import org.example.museum.model.Product;
+import org.example.museum.model.ProductFilter;
 import org.example.museum.repository.ProductRepository;
+import org.example.museum.repository.ProductSpecifications;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Сервис для управления экспонатами.
  * Обеспечивает операции сохранения, получения, удаления,
  * а также вычисления статистики по количеству экспонатов по датам поставок.
+ * Чтение из базы выполняется в транзакциях только для чтения, которые при включенной маршрутизации
+ * источника данных уходят на реплики.
  */
 @Service
 public class ProductService {
 
+    /**
+     * Наибольшее число идентификаторов из поискового индекса в одном условии {@code id IN (...)}.
+     */
+    private static final int KEYWORD_ID_CHUNK = 1000;
+
     @Autowired
     private ProductRepository repo;
 
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private DeliveryHistogram deliveryHistogram;
+
+    @Autowired
+    private ProductJsonCache jsonCache;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private List<ProductChangeListener> changeListeners;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${museum.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Загружает каталог в индексы после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexes() {
+        for (Product product : repo.findAll()) {
+            notifySaved(product);
+        }
+    }
+
     /**
-     * Сохраняет продукт в базе данных.
+     * Сохраняет продукт в базе данных и публикует {@link ProductChangedEvent}.
+     * <p>
+     * Категория может быть передана только идентификатором ({@code "category": {"id": 2}}): перед сохранением
+     * она заменяется категорией из базы, чтобы обработчики изменений получили продукт с названием категории.
      *
      * @param product предмет для сохранения.
      * @return сохраненный предмет.
      */
     public Product save(Product product) {
-        return repo.save(product);
+        boolean created = product.getId() == null;
+        Category category = product.getCategory();
+        if (category != null && category.getId() != null) {
+            Category found = categoryService.findById(category.getId());
+            if (found != null) {
+                product.setCategory(found);
+            }
+        }
+        Product saved = repo.save(product);
+        notifySaved(saved);
+        eventPublisher.publishEvent(created ? ProductChangedEvent.created(saved) : ProductChangedEvent.updated(saved));
+        return saved;
+    }
+
+    /**
+     * Частично обновляет продукт: изменяются только поля, переданные в {@code changes}.
+     * <p>
+     * Категория задается объектом с идентификатором ({@code "category": {"id": 2}}).
+     * Если передано поле {@code version}, оно должно совпадать с текущей версией продукта.
+     * Конкурентное изменение между чтением и записью обнаруживается по версии в условии UPDATE,
+     * поэтому блокировка строки не требуется. В UPDATE попадают только измененные столбцы.
+     * Обработчики изменений уведомляются, а {@link ProductChangedEvent} публикуется после фиксации транзакции.
+     *
+     * @param id идентификатор продукта.
+     * @param changes изменяемые поля в формате JSON.
+     * @return обновленный продукт, или null, если продукт не найден.
+     * @throws ObjectOptimisticLockingFailureException если версия продукта не совпадает с ожидаемой.
+     * @throws IllegalArgumentException если указанная категория не найдена.
+     * @throws IOException если значения полей не удалось прочитать.
+     */
+    @Transactional
+    public Product patch(Long id, ObjectNode changes) throws IOException {
+        Product product = repo.findById(id).orElse(null);
+        if (product == null) {
+            return null;
+        }
+        JsonNode expectedVersion = changes.remove("version");
+        if (expectedVersion != null && !expectedVersion.isNull() && expectedVersion.asLong() != product.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, id);
+        }
+        changes.remove("id");
+        JsonNode category = changes.remove("category");
+        objectMapper.readerForUpdating(product).readValue(changes);
+        if (category != null) {
+            product.setCategory(findCategory(category));
+        }
+        repo.flush();
+        notifySavedAfterCommit(product);
+        return product;
+    }
+
+    private Category findCategory(JsonNode category) {
+        JsonNode id = category.path("id");
+        Category found = id.isMissingNode() || id.isNull() ? null : entityManager.find(Category.class, id.asLong());
+        if (found == null) {
+            throw new IllegalArgumentException("Категория не найдена: " + category);
+        }
+        return found;
+    }
+
+    /**
+     * Уведомляет обработчики изменений и публикует событие обновления после фиксации текущей транзакции.
+     */
+    private void notifySavedAfterCommit(Product product) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notifySaved(product);
+                eventPublisher.publishEvent(ProductChangedEvent.updated(product));
+            }
+        });
     }
 
     /**
      * Получает продукт по его идентификатору.
+     * Продукт берется из кэша второго уровня, а при промахе загружается и кладется в кэш. Кэш общий
+     * для всех клиентов, поэтому промах читается с основной базы в обычной транзакции, а не с реплики.
      *
      * @param id идентификатор .
      * @return продукт с указанным идентификатором, или null, если предмет не найден.
      */
+    @Transactional
     public Product get(Long id) {
         return repo.findById(id).orElse(null);
     }
 
     /**
-     * Удаляет предмет по его идентификатору.
+     * Удаляет предмет по его идентификатору и публикует {@link ProductChangedEvent}.
      *
      * @param id идентификатор предмета, который нужно удалить.
      */
     public void delete(Long id) {
         repo.deleteById(id);
+        changeListeners.forEach(listener -> listener.productDeleted(id));
+        catalogVersion.increment();
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+    }
+
+    /**
+     * Передает сохраненный продукт обработчикам изменений и только затем увеличивает версию каталога,
+     * чтобы новый ETag не выдавался вместе с прежним содержимым кэшей.
+     */
+    private void notifySaved(Product product) {
+        changeListeners.forEach(listener -> listener.productSaved(product));
+        catalogVersion.increment();
+    }
+
+    /**
+     * Возвращает JSON кратких представлений всех продуктов из {@link ProductJsonCache}.
+     *
+     * @return список записей кэша в порядке возрастания идентификатора.
+     */
+    public List<ProductJsonCache.CachedRow> findAllJson() {
+        return jsonCache.all();
+    }
+
+    /**
+     * Ищет продукты по ключевому слову в полях: идентификатор, название, художник, дата создания.
+     * Поиск выполняется по индексу {@link ProductSearchIndex}, а JSON найденных продуктов берется
+     * из {@link ProductJsonCache} без обращения к базе данных.
+     *
+     * @param keyword ключевое слово для поиска.
+     * @return список записей кэша в порядке возрастания идентификатора.
+     */
+    public List<ProductJsonCache.CachedRow> searchJson(String keyword) {
+        return jsonCache.get(searchIndex.search(keyword));
+    }
+
+    /**
+     * Возвращает страницу продуктов с идентификатором больше {@code after} (keyset-пагинация) в виде JSON
+     * из {@link ProductJsonCache} без обращения к базе данных.
+     * <p>
+     * Если задано ключевое слово, страница отбирается из результатов поиска по индексу.
+     *
+     * @param keyword ключевое слово для поиска или {@code null}.
+     * @param after идентификатор последнего продукта предыдущей страницы или {@code null} для первой страницы.
+     * @param limit максимальный размер страницы.
+     * @return список записей кэша в порядке возрастания идентификатора.
+     */
+    public List<ProductJsonCache.CachedRow> findPageJson(String keyword, Long after, int limit) {
+        long from = after != null ? after : Long.MIN_VALUE;
+        if (keyword == null || keyword.isEmpty()) {
+            return jsonCache.after(from, limit);
+        }
+        List<Long> ids = searchIndex.search(keyword).stream()
+                .filter(id -> id > from)
+                .limit(limit)
+                .toList();
+        return jsonCache.get(ids);
+    }
+
+    /**
+     * Отбирает продукты по условиям фильтра и, если задано, ключевому слову и возвращает их JSON
+     * из {@link ProductJsonCache}.
+     * <p>
+     * Условия фильтра проверяет база данных по индексам таблицы продуктов, из нее читаются только
+     * идентификаторы. Ключевое слово проверяется по индексу {@link ProductSearchIndex}.
+     *
+     * @param filter условия отбора.
+     * @param keyword ключевое слово для поиска или {@code null}.
+     * @return список записей кэша в порядке возрастания идентификатора.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductJsonCache.CachedRow> filterJson(ProductFilter filter, String keyword) {
+        return jsonCache.get(filterIds(filter, keyword, null, null));
+    }
+
+    /**
+     * Возвращает страницу продуктов с идентификатором больше {@code after}, отобранных как в
+     * {@link #filterJson(ProductFilter, String)}.
+     *
+     * @param filter условия отбора.
+     * @param keyword ключевое слово для поиска или {@code null}.
+     * @param after идентификатор последнего продукта предыдущей страницы или {@code null} для первой страницы.
+     * @param limit максимальный размер страницы.
+     * @return список записей кэша в порядке возрастания идентификатора.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductJsonCache.CachedRow> filterPageJson(ProductFilter filter, String keyword, Long after, int limit) {
+        return jsonCache.get(filterIds(filter, keyword, after, limit));
+    }
+
+    /**
+     * Возвращает идентификаторы отобранных продуктов. Ограничение размера страницы передается в запрос.
+     * С ключевым словом идентификаторы из поискового индекса передаются в запрос порциями
+     * по {@value #KEYWORD_ID_CHUNK} в условии {@code id IN (...)}; порции проверяются по возрастанию
+     * идентификаторов, пока страница не наберется.
+     */
+    private List<Long> filterIds(ProductFilter filter, String keyword, Long after, Integer limit) {
+        Specification<Product> specification = ProductSpecifications.matching(filter)
+                .and(ProductSpecifications.idGreaterThan(after));
+        if (keyword == null || keyword.isEmpty()) {
+            return selectIds(specification, limit);
+        }
+        List<Long> matches = searchIndex.search(keyword);
+        // Идентификаторы индекса упорядочены, поэтому продукты предыдущих страниц пропускаются сразу
+        int from = 0;
+        while (after != null && from < matches.size() && matches.get(from) <= after) {
+            from++;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (int start = from; start < matches.size(); start += KEYWORD_ID_CHUNK) {
+            if (limit != null && ids.size() >= limit) {
+                break;
+            }
+            List<Long> chunk = matches.subList(start, Math.min(start + KEYWORD_ID_CHUNK, matches.size()));
+            ids.addAll(selectIds(specification.and(ProductSpecifications.idIn(chunk)),
+                    limit == null ? null : limit - ids.size()));
+        }
+        return ids;
+    }
+
+    private List<Long> selectIds(Specification<Product> specification, Integer limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(root.get("id")).orderBy(cb.asc(root.get("id")));
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        TypedQuery<Long> typedQuery = entityManager.createQuery(query);
+        if (limit != null) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    /**
+     * Передает все продукты обработчику по мере чтения из базы.
+     * <p>
+     * Продукты читаются однонаправленным курсором порциями по {@code museum.export.fetch-size} строк.
+     * Каждый продукт отсоединяется от контекста персистентности сразу после обработки,
+     * поэтому расход памяти не зависит от размера каталога. Исключение обработчика прекращает
+     * чтение и закрывает курсор.
+     *
+     * @param action обработчик, вызываемый для каждого продукта в порядке возрастания идентификатора.
+     */
+    @Transactional(readOnly = true)
+    public void forEachProduct(Consumer<Product> action) {
+        Session session = entityManager.unwrap(Session.class);
+        try (ScrollableResults<Product> products = session.createSelectionQuery(ProductRepository.SCROLL_ALL, Product.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (products.next()) {
+                Product product = products.get();
+                action.accept(product);
+                session.detach(product);
+            }
+        }
     }
 
     /**
@@ -56,33 +365,25 @@ public class ProductService {
      *         Продукты учитываются только за последние 14 дней.
      */
     public Map<LocalDate, Long> getProductsCountByDeliveryDate() {
-        List<Product> allProducts = repo.findAll();
-        Map<LocalDate, Long> countMap = new HashMap<>();
-
         LocalDate today = LocalDate.now();
         LocalDate startDate = today.minusDays(14);
 
-        for (Product product : allProducts) {
-            LocalDate deliveryDate = product.getDeliveryDate();
-
-            // Учитываем только те продукты, которые были поставлены за последние 14 дней
-            if (deliveryDate != null && !deliveryDate.isBefore(startDate) && !deliveryDate.isAfter(today)) {
-                // Добавляем количество "В наличии" (quantity) к соответствующей дате поставки
-                Long availableCount = (long) product.getQuantity();  // Используем поле quantity
-                countMap.put(deliveryDate, countMap.getOrDefault(deliveryDate, 0L) + availableCount);
-            }
-        }
+        // Агрегаты по датам поддерживаются при сохранении и удалении, здесь читаются только счетчики окна
+        return deliveryHistogram.quantitiesBetween(startDate, today);
+    }
 
-        // Сортировка по дате в порядке возрастания
-        return countMap.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByKey())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
+    /**
+     * Получает суммарное количество экспонатов по интервалам дат поставки в диапазоне {@code [from, to]}.
+     *
+     * @param from первая дата диапазона (включительно).
+     * @param to последняя дата диапазона (включительно).
+     * @param bucket интервал группировки: день, неделя или месяц.
+     * @return карта, где ключом является начало интервала, а значением - количество экспонатов,
+     *         поставленных в этом интервале. Пустые интервалы включаются со значением 0.
+     * @throws IllegalArgumentException если диапазон задан неверно или содержит слишком много интервалов.
+     */
+    public Map<LocalDate, Long> getProductsCountByDeliveryDate(LocalDate from, LocalDate to, DeliveryHistogram.Bucket bucket) {
+        return deliveryHistogram.quantitiesByBucket(from, to, bucket);
     }
 
 }
@@ -0,0 +1,389 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Префиксное дерево названий и художников продуктов для подсказок при вводе.
+ * <p>
+ * Ключи приводятся к нижнему регистру, а «ё» заменяется на «е», поэтому «ЁЛКА», «Ёлка» и «елка»
+ * считаются одним вариантом. Частота варианта — число его вхождений среди названий и художников.
+ * Вариант показывается в самом раннем из написаний, которые еще встречаются в каталоге.
+ * В каждом узле хранятся {@value #MAX_SUGGESTIONS} самых частых вариантов его поддерева, так что ответ
+ * на запрос занимает O(длина префикса) и не зависит от размера каталога. При увеличении частоты списки
+ * узлов на пути обновляются вставкой, при уменьшении пересобираются из списков дочерних узлов.
+ * Индекс строится при старте приложения и обновляется из {@link ProductService} при сохранении и удалении.
+ */
+@Component
+public class ProductSuggestIndex implements ProductChangeListener {
+
+    /**
+     * Максимальное число подсказок в ответе.
+     */
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Оценки размера объектов для 64-битной JVM со сжатыми указателями
+    private static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    /**
+     * Подсказка: вариант написания и его частота.
+     *
+     * @param text вариант в написании самого раннего из оставшихся вхождений
+     * @param count число вхождений
+     */
+    public record Suggestion(String text, int count) {
+    }
+
+    /**
+     * Вариант в дереве. Написания хранятся в порядке первого появления вместе с числом их вхождений,
+     * так что после удаления последнего вхождения написания вариант показывается в следующем.
+     */
+    private static final class Term {
+        private final String key;
+        private String[] spellings = new String[0];
+        private int[] spellingCounts = new int[0];
+        private int count;
+
+        private Term(String key) {
+            this.key = key;
+        }
+
+        private String text() {
+            return spellings[0];
+        }
+
+        private void add(String spelling) {
+            int index = Arrays.asList(spellings).indexOf(spelling);
+            if (index < 0) {
+                index = spellings.length;
+                spellings = Arrays.copyOf(spellings, index + 1);
+                spellingCounts = Arrays.copyOf(spellingCounts, index + 1);
+                spellings[index] = spelling;
+            }
+            spellingCounts[index]++;
+            count++;
+        }
+
+        private void remove(String spelling) {
+            int index = Arrays.asList(spellings).indexOf(spelling);
+            count--;
+            if (--spellingCounts[index] > 0) {
+                return;
+            }
+            String[] remainingSpellings = new String[spellings.length - 1];
+            int[] remainingCounts = new int[spellingCounts.length - 1];
+            System.arraycopy(spellings, 0, remainingSpellings, 0, index);
+            System.arraycopy(spellings, index + 1, remainingSpellings, index, remainingSpellings.length - index);
+            System.arraycopy(spellingCounts, 0, remainingCounts, 0, index);
+            System.arraycopy(spellingCounts, index + 1, remainingCounts, index, remainingCounts.length - index);
+            spellings = remainingSpellings;
+            spellingCounts = remainingCounts;
+        }
+    }
+
+    /**
+     * Узел дерева: дочерние узлы в массивах, отсортированных по символу.
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Term term;
+        private Term[] top = new Term[0];
+    }
+
+    private static final Comparator<Term> ORDER = Comparator.<Term>comparingInt(term -> -term.count)
+            .thenComparing(term -> term.key);
+
+    private final Node root = new Node();
+    private final Map<Long, List<String>> productTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int terms;
+    private int nodes = 1;
+
+    /**
+     * Добавляет название и художника продукта, заменяя предыдущие значения.
+     *
+     * @param product сохраненный продукт.
+     */
+    @Override
+    public void productSaved(Product product) {
+        List<String> texts = new ArrayList<>(2);
+        for (String text : new String[]{product.getName(), product.getArtist()}) {
+            if (text != null && !fold(text).isEmpty()) {
+                texts.add(text.strip());
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            // Новые значения добавляются до удаления прежних, чтобы повторное сохранение не меняло написание варианта
+            List<String> previous = productTerms.put(product.getId(), texts);
+            texts.forEach(this::add);
+            if (previous != null) {
+                previous.forEach(this::remove);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет название и художника продукта из индекса.
+     *
+     * @param id идентификатор удаленного продукта.
+     */
+    @Override
+    public void productDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает самые частые варианты, начинающиеся с префикса (без учета регистра и различия «ё» и «е»).
+     *
+     * @param prefix начало названия или имени художника.
+     * @param limit максимальное число подсказок, не более {@value #MAX_SUGGESTIONS}.
+     * @return подсказки в порядке убывания частоты, при равной частоте — по алфавиту.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = fold(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return List.of();
+            }
+            return Arrays.stream(node.top)
+                    .limit(Math.min(limit, MAX_SUGGESTIONS))
+                    .map(term -> new Suggestion(term.text(), term.count))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает размер индекса.
+     * Объем памяти оценивается по числу узлов, вариантов и длине их строк без учета выравнивания объектов.
+     *
+     * @return число вариантов, узлов и оценка занимаемой памяти в байтах
+     */
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long[] bytes = new long[1];
+            visit(root, node -> bytes[0] += nodeBytes(node));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("terms", terms);
+            result.put("nodes", nodes);
+            result.put("products", productTerms.size());
+            result.put("estimatedBytes", bytes[0]);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Приводит строку к виду ключа: нижний регистр, «ё» заменяется на «е», пробелы по краям удаляются.
+     *
+     * @param text исходная строка.
+     * @return ключ для поиска в дереве.
+     */
+    static String fold(String text) {
+        String lower = text.strip().toLowerCase(Locale.ROOT);
+        return lower.indexOf('ё') >= 0 ? lower.replace('ё', 'е') : lower;
+    }
+
+    private void removeProduct(Long id) {
+        List<String> texts = productTerms.remove(id);
+        if (texts != null) {
+            texts.forEach(this::remove);
+        }
+    }
+
+    private void add(String text) {
+        String key = fold(text);
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = child(path[i], key.charAt(i), true);
+        }
+        Node last = path[key.length()];
+        if (last.term == null) {
+            last.term = new Term(key);
+            terms++;
+        }
+        last.term.add(text);
+        for (int i = path.length - 1; i >= 0; i--) {
+            promote(path[i], last.term);
+        }
+    }
+
+    private void remove(String text) {
+        String key = fold(text);
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = child(path[i], key.charAt(i), false);
+        }
+        Node last = path[key.length()];
+        last.term.remove(text);
+        if (last.term.count == 0) {
+            last.term = null;
+            terms--;
+        }
+        for (int i = path.length - 1; i >= 0; i--) {
+            Node node = path[i];
+            if (i > 0 && node.term == null && node.children.length == 0) {
+                removeChild(path[i - 1], key.charAt(i - 1));
+                nodes--;
+            } else {
+                rebuildTop(node);
+            }
+        }
+    }
+
+    private Node find(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = child(node, key.charAt(i), false);
+        }
+        return node;
+    }
+
+    private Node child(Node node, char c, boolean create) {
+        int index = Arrays.binarySearch(node.keys, c);
+        if (index >= 0) {
+            return node.children[index];
+        }
+        if (!create) {
+            return null;
+        }
+        int insert = -index - 1;
+        Node created = new Node();
+        node.keys = insert(node.keys, insert, c);
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, insert);
+        children[insert] = created;
+        System.arraycopy(node.children, insert, children, insert + 1, node.children.length - insert);
+        node.children = children;
+        nodes++;
+        return created;
+    }
+
+    private static char[] insert(char[] keys, int index, char c) {
+        char[] result = new char[keys.length + 1];
+        System.arraycopy(keys, 0, result, 0, index);
+        result[index] = c;
+        System.arraycopy(keys, index, result, index + 1, keys.length - index);
+        return result;
+    }
+
+    private static void removeChild(Node node, char c) {
+        int index = Arrays.binarySearch(node.keys, c);
+        char[] keys = new char[node.keys.length - 1];
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.keys, 0, keys, 0, index);
+        System.arraycopy(node.keys, index + 1, keys, index, keys.length - index);
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        node.keys = keys;
+        node.children = children;
+    }
+
+    /**
+     * Обновляет список самых частых вариантов узла после увеличения частоты варианта.
+     */
+    private static void promote(Node node, Term term) {
+        Term[] top = node.top;
+        int position = -1;
+        for (int i = 0; i < top.length; i++) {
+            if (top[i] == term) {
+                position = i;
+                break;
+            }
+        }
+        if (position < 0) {
+            if (top.length < MAX_SUGGESTIONS) {
+                top = Arrays.copyOf(top, top.length + 1);
+            } else if (ORDER.compare(term, top[top.length - 1]) >= 0) {
+                return;
+            }
+            position = top.length - 1;
+            top[position] = term;
+        }
+        while (position > 0 && ORDER.compare(top[position], top[position - 1]) < 0) {
+            Term previous = top[position - 1];
+            top[position - 1] = top[position];
+            top[position] = previous;
+            position--;
+        }
+        node.top = top;
+    }
+
+    /**
+     * Пересобирает список самых частых вариантов узла из его варианта и списков дочерних узлов.
+     */
+    private static void rebuildTop(Node node) {
+        PriorityQueue<Term> candidates = new PriorityQueue<>(ORDER);
+        if (node.term != null) {
+            candidates.add(node.term);
+        }
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        Term[] top = new Term[Math.min(candidates.size(), MAX_SUGGESTIONS)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = candidates.poll();
+        }
+        node.top = top;
+    }
+
+    private static long nodeBytes(Node node) {
+        long bytes = OBJECT_HEADER_BYTES + 4L * REFERENCE_BYTES
+                + ARRAY_HEADER_BYTES + 2L * node.keys.length
+                + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * node.children.length
+                + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * node.top.length;
+        if (node.term != null) {
+            Term term = node.term;
+            bytes += OBJECT_HEADER_BYTES + 3L * REFERENCE_BYTES + 4 + stringBytes(term.key)
+                    + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * term.spellings.length
+                    + ARRAY_HEADER_BYTES + 4L * term.spellingCounts.length;
+            for (String spelling : term.spellings) {
+                bytes += spelling.equals(term.key) ? 0 : stringBytes(spelling);
+            }
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String text) {
+        boolean latin1 = text.chars().allMatch(c -> c < 256);
+        return OBJECT_HEADER_BYTES + REFERENCE_BYTES + 8 + ARRAY_HEADER_BYTES + (latin1 ? 1L : 2L) * text.length();
+    }
+
+    private static void visit(Node node, Consumer<Node> action) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            action.accept(current);
+            for (Node child : current.children) {
+                stack.push(child);
+            }
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package org.example.museum.service;
 
 import jakarta.transaction.Transactional;
+import org.example.museum.config.CacheConfig;
 import org.example.museum.model.Role;
 import org.example.museum.model.User;
 import org.example.museum.repository.RoleRepository;
 import org.example.museum.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
 
@@ -28,6 +33,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     /**
      * Получить список всех пользователей.
      *
@@ -69,7 +77,9 @@ public class UserService {
         user.setRoles(roles);
 
         // Сохраняем пользователя с присвоенной ролью
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        evictPrincipal(saved.getUsername());
+        return saved;
     }
 
 
@@ -83,6 +93,22 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
 
+    /**
+     * Обновить хэш пароля пользователя.
+     * Используется для перехэширования пароля при входе после изменения стоимости BCrypt.
+     *
+     * @param username имя пользователя.
+     * @param encodedPassword новый хэш пароля.
+     */
+    public void updatePassword(String username, String encodedPassword) {
+        User user = userRepository.findByUsername(username);
+        if (user != null) {
+            user.setPassword(encodedPassword);
+            userRepository.save(user);
+            evictPrincipal(username);
+        }
+    }
+
     /**
      * Получить пользователя по его идентификатору.
      *
@@ -100,7 +126,9 @@ public class UserService {
      * @param id идентификатор пользователя.
      */
     public void delete(Long id) {
+        Optional<User> user = userRepository.findById(id);
         userRepository.deleteById(id);
+        user.ifPresent(u -> evictPrincipal(u.getUsername()));
     }
 
     /**
@@ -123,6 +151,27 @@ public class UserService {
 
             // Сохраняем обновленного пользователя
             userRepository.save(user);
+            evictPrincipal(user.getUsername());
+        }
+    }
+
+    /**
+     * Сбрасывает кэшированные учетные данные пользователя, чтобы изменения вступили в силу при следующей проверке.
+     * Внутри транзакции сброс откладывается до ее фиксации, иначе в кэш могли бы снова попасть старые данные.
+     *
+     * @param username имя пользователя.
+     */
+    private void evictPrincipal(String username) {
+        Cache principals = cacheManager.getCache(CacheConfig.PRINCIPALS);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    principals.evict(username);
+                }
+            });
+        } else {
+            principals.evict(username);
         }
     }
 }
@@ -0,0 +1,170 @@
+package org.example.museum;
+
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.service.CategoryService;
+import org.example.museum.service.ProductService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнение пропускной способности и p99 задержки для потоков платформы и виртуальных потоков.
+ * <p>
+ * Приложение поднимается дважды на встроенной базе H2 (профиль {@code h2}) с выключенным и включенным
+ * {@code spring.threads.virtual.enabled}, после чего {@value #CLIENTS} клиентов в течение {@code DURATION}
+ * опрашивают {@code /api/products} и {@code /api/categories}. Аутентификация отключена, чтобы BCrypt
+ * не искажал результат. Тест запускается задачей {@code gradle loadTest}.
+ */
+@Tag("load")
+class ThreadingModeComparisonTest {
+
+    private static final int PRODUCTS = 2_000;
+    private static final int CLIENTS = 400;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    @TestConfiguration
+    static class OpenApiSecurity {
+
+        /**
+         * Открывает {@code /api/**} раньше цепочки приложения, которая требует аутентификацию для всех запросов.
+         */
+        @Bean
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        SecurityFilterChain openApi(HttpSecurity http) throws Exception {
+            return http.securityMatcher("/api/**")
+                    .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+                    .csrf(csrf -> csrf.disable())
+                    .build();
+        }
+    }
+
+    private record Result(long requests, long errors, double throughput, double p50Millis, double p99Millis) {
+    }
+
+    @Test
+    void compareThreadingModes() throws Exception {
+        System.out.printf("%-8s %-16s %10s %8s %10s %9s %9s%n",
+                "threads", "route", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = start(virtual)) {
+                seed(context);
+                int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+                for (String route : List.of("/api/products", "/api/categories")) {
+                    run(port, route, WARMUP);
+                    Result result = run(port, route, DURATION);
+                    System.out.printf("%-8s %-16s %10d %8d %10.0f %9.2f %9.2f%n",
+                            virtual ? "virtual" : "platform", route, result.requests(), result.errors(),
+                            result.throughput(), result.p50Millis(), result.p99Millis());
+                    assertTrue(result.requests() > 0);
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual) {
+        // Аргументы командной строки переопределяют application.properties, в отличие от properties() билдера
+        return new SpringApplicationBuilder(MuseumApplication.class, OpenApiSecurity.class)
+                .profiles("h2")
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + virtual + ";DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER");
+    }
+
+    private static void seed(ConfigurableApplicationContext context) {
+        CategoryService categoryService = context.getBean(CategoryService.class);
+        ProductService productService = context.getBean(ProductService.class);
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Category category = new Category();
+            category.setName("Категория " + i);
+            categories.add(categoryService.save(category));
+        }
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Экспонат " + i);
+            product.setArtist("Художник " + (i % 50));
+            product.setManufacturer("Мастерская " + (i % 20));
+            product.setCreationDate(today.minusYears(i % 300));
+            product.setDeliveryDate(today.minusDays(i % 30));
+            product.setQuantity(1 + i % 5);
+            product.setCategory(categories.get(i % categories.size()));
+            productService.save(product);
+        }
+    }
+
+    private static Result run(int port, String route, Duration duration) throws Exception {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + route)).GET().build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        List<Future<long[]>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    long errors = 0;
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors++;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    long[] result = Arrays.copyOf(latencies, count + 1);
+                    result[count] = errors;
+                    return result;
+                }));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long errors = 0;
+        long[] all = new long[0];
+        for (Future<long[]> future : clients) {
+            long[] latencies = future.get();
+            errors += latencies[latencies.length - 1];
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length - 1);
+            System.arraycopy(latencies, 0, all, offset, latencies.length - 1);
+        }
+        Arrays.sort(all);
+        return new Result(all.length, errors, all.length / seconds, percentile(all, 0.50), percentile(all, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
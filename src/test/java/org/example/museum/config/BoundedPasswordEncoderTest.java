@@ -0,0 +1,80 @@
+package org.example.museum.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет ограничения {@link BoundedPasswordEncoder}: при занятом пуле вызывающие потоки ждут не дольше
+ * заданного времени, задача убирается из очереди, а при полной очереди запрос отклоняется сразу.
+ */
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("hash:" + rawPassword);
+        }
+    }, 1, 1, Duration.ofMillis(100));
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.close();
+    }
+
+    @Test
+    void rejectsWaitingCallersAfterMaxWait() throws Exception {
+        CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Задача в очереди убирается из нее, а вызывающий поток начатого хэширования тоже перестает ждать
+        assertThrows(PasswordHashingRejectedException.class, () -> encoder.matches("second", "hash:second"));
+        assertEquals(0, encoder.stats().get("queueDepth"));
+        ExecutionException busyFailure = assertThrows(ExecutionException.class, () -> busy.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(PasswordHashingRejectedException.class, busyFailure.getCause());
+        assertEquals(2L, encoder.stats().get("timedOut"));
+
+        release.countDown();
+        assertTrue(encoder.matches("third", "hash:third"));
+        assertEquals(2L, encoder.stats().get("completed"));
+    }
+
+    @Test
+    void rejectsImmediatelyWhenQueueIsFull() throws Exception {
+        CompletableFuture.runAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("second", "hash:second"));
+        while (encoder.stats().get("queueDepth").equals(0) && !queued.isDone()) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingRejectedException.class, () -> encoder.matches("third", "hash:third"));
+        assertEquals(1L, encoder.stats().get("rejected"));
+    }
+}
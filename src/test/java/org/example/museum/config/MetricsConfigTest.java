@@ -0,0 +1,69 @@
+package org.example.museum.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет метрики маршрутов: ответы 200 и 304 одного маршрута попадают в общий таймер задержек,
+ * а теги статуса убираются только у таймеров, которые сводит MetricsController.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@WithMockUser
+class MetricsConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void routeLatencyCoversAllOutcomes() throws Exception {
+        // Контекст общий с другими тестами, которые тоже обращаются к маршруту, поэтому считается прирост
+        long before = routeCount();
+        String etag = mockMvc.perform(get("/api/categories"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/categories").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        assertEquals(before + 2, routeCount());
+        assertEquals(1, meterRegistry.get("http.server.requests")
+                .tags("uri", "/api/categories", "outcome", "SUCCESS").timers().size());
+        assertEquals(1, meterRegistry.get("http.server.requests")
+                .tags("uri", "/api/categories", "outcome", "REDIRECTION").timers().size());
+        mockMvc.perform(get("/api/metrics/routes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'GET /api/categories')].count").value((int) before + 2))
+                .andExpect(jsonPath("$[?(@.name == 'GET /api/categories')].p50Millis").exists());
+    }
+
+    @Test
+    void keepsStatusTagOfOtherMeters() {
+        Counter counter = meterRegistry.counter("museum.test.responses", "status", "200");
+
+        assertEquals("200", counter.getId().getTag("status"));
+    }
+
+    private long routeCount() {
+        Timer timer = meterRegistry.find(RouteTimerObservationHandler.METER)
+                .tags("method", "GET", "uri", "/api/categories").timer();
+        return timer != null ? timer.count() : 0;
+    }
+}
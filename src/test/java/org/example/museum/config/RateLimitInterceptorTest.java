@@ -0,0 +1,145 @@
+package org.example.museum.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Проверяет ограничение частоты запросов: бюджеты маршрутов из настроек, ответ 429 с Retry-After,
+ * раздельные корзины клиентов и точность бюджета при одновременных запросах.
+ */
+@SpringBootTest(properties = {
+        "museum.rate-limit.routes.histogram.requests=3",
+        "museum.rate-limit.routes.histogram.period=1m",
+        "museum.rate-limit.routes.histogram.burst=3",
+        "museum.rate-limit.routes.search.requests=2",
+        "museum.rate-limit.routes.search.period=1m",
+        "museum.rate-limit.routes.search.burst=2"})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class RateLimitInterceptorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void rejectsRequestsOverBudgetWithRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, histogram("alice").getResponse().getStatus());
+        }
+        double rejected = meterRegistry.counter(RateLimitInterceptor.REJECTED_METER, "route", "histogram").count();
+
+        MvcResult result = histogram("alice");
+
+        assertEquals(429, result.getResponse().getStatus());
+        long retryAfter = Long.parseLong(result.getResponse().getHeader("Retry-After"));
+        assertTrue(retryAfter >= 1 && retryAfter <= 20, String.valueOf(retryAfter));
+        assertEquals(rejected + 1, meterRegistry.counter(RateLimitInterceptor.REJECTED_METER, "route", "histogram").count());
+        assertEquals(200, histogram("bob").getResponse().getStatus());
+    }
+
+    @Test
+    void limitsOnlyRequestsWithListedParameters() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, mockMvc.perform(get("/api/products").with(user("carol"))).andReturn().getResponse().getStatus());
+        }
+        for (int i = 0; i < 2; i++) {
+            assertEquals(200, mockMvc.perform(get("/api/products").param("artist", "Ван Гог").with(user("carol")))
+                    .andReturn().getResponse().getStatus());
+        }
+        assertEquals(429, mockMvc.perform(get("/api/products").param("keyword", "ночь").with(user("carol")))
+                .andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void keysAnonymousClientsByAddress() {
+        RateLimitInterceptor interceptor = interceptor(1);
+
+        assertTrue(interceptor.preHandle(request("10.0.0.1"), new MockHttpServletResponse(), null));
+        assertFalse(interceptor.preHandle(request("10.0.0.1"), new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(request("10.0.0.2"), new MockHttpServletResponse(), null));
+
+        MockHttpServletRequest other = request("10.0.0.3");
+        other.setRequestURI("/api/other");
+        assertTrue(interceptor.preHandle(other, new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void concurrentRequestsNeverExceedBudget() throws Exception {
+        int budget = 100;
+        RateLimitInterceptor interceptor = interceptor(budget);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < budget; i++) {
+                        if (interceptor.preHandle(request("10.0.0.1"), new MockHttpServletResponse(), null)) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(budget, allowed.get());
+        assertEquals(budget * (threads - 1L), rejected(interceptor));
+    }
+
+    private MvcResult histogram(String username) throws Exception {
+        return mockMvc.perform(get("/api/products/histogram").with(user(username))).andReturn();
+    }
+
+    /**
+     * Ограничение с бюджетом {@code budget} запросов в час к {@code /api/limited}.
+     */
+    private static RateLimitInterceptor interceptor(int budget) {
+        RateLimitInterceptor.Route route = new RateLimitInterceptor.Route(
+                "/api/limited", List.of("GET"), List.of(), budget, Duration.ofHours(1), budget);
+        return new RateLimitInterceptor(Map.of("limited", route), 1000, new SimpleMeterRegistry());
+    }
+
+    private static long rejected(RateLimitInterceptor interceptor) {
+        return (long) interceptor.stats().get("limited").get("rejected");
+    }
+
+    private static MockHttpServletRequest request(String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/limited");
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
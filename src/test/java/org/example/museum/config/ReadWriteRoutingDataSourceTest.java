@@ -0,0 +1,190 @@
+package org.example.museum.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.service.CatalogStatistics;
+import org.example.museum.service.CatalogStatisticsService;
+import org.example.museum.service.CategoryService;
+import org.example.museum.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет маршрутизацию запросов между основной базой и репликами на встроенных базах H2.
+ * Реплики получают схему основной базы при старте контекста, данные между базами не копируются.
+ */
+@SpringBootTest(properties = {
+        "museum.datasource.routing.enabled=true",
+        "spring.datasource.url=" + ReadWriteRoutingDataSourceTest.PRIMARY_URL,
+        "museum.datasource.routing.replicas=" + ReadWriteRoutingDataSourceTest.REPLICA_1_URL
+                + "," + ReadWriteRoutingDataSourceTest.REPLICA_2_URL,
+        "museum.datasource.routing.read-your-writes=1s"})
+@ActiveProfiles("h2")
+class ReadWriteRoutingDataSourceTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER";
+    static final String REPLICA_1_URL = "jdbc:h2:mem:replica1;DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER";
+    static final String REPLICA_2_URL = "jdbc:h2:mem:replica2;DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER";
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CatalogStatisticsService statisticsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Создает на репликах схему основной базы до загрузки индексов при старте приложения.
+     */
+    @TestConfiguration
+    static class ReplicaSchema {
+
+        @EventListener(ContextRefreshedEvent.class)
+        void copySchema() throws SQLException {
+            List<String> script = new ArrayList<>();
+            execute(PRIMARY_URL, primary -> script.addAll(primary.queryForList("SCRIPT NODATA", String.class)));
+            for (String url : List.of(REPLICA_1_URL, REPLICA_2_URL)) {
+                execute(url, replica -> script.forEach(replica::execute));
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void writesGoToPrimary() {
+        assertEquals("PRIMARY", database(false));
+        assertEquals("PRIMARY", jdbcTemplate.queryForObject("SELECT DATABASE()", String.class));
+    }
+
+    @Test
+    void readOnlyTransactionsAlternateBetweenReplicas() {
+        Set<String> databases = new HashSet<>();
+        String previous = null;
+        for (int i = 0; i < 4; i++) {
+            String database = database(true);
+            assertNotEquals(previous, database);
+            databases.add(database);
+            previous = database;
+        }
+        assertEquals(Set.of("REPLICA1", "REPLICA2"), databases);
+    }
+
+    @Test
+    void readOnlyServiceMethodsReadFromReplicas() throws SQLException {
+        Category saved = new Category();
+        saved.setName("Только в основной базе");
+        categoryService.save(saved);
+        for (String url : List.of(REPLICA_1_URL, REPLICA_2_URL)) {
+            execute(url, replica -> {
+                replica.update("INSERT INTO category (id, name) VALUES (1000, 'Только на реплике')");
+                replica.update("INSERT INTO product (id, name, creation_date, category_id, manufacturer, quantity, version) "
+                        + "VALUES (1000, 'Экспонат реплики', DATE '2024-01-01', 1000, 'Лувр', 1, 0)");
+            });
+        }
+
+        CatalogStatistics statistics = statisticsService.compute(0);
+        assertEquals(1, statistics.products());
+        assertEquals(List.of(new CatalogStatistics.CategoryTotals(1000L, "Только на реплике", 1, 1)), statistics.categories());
+        assertEquals("Только в основной базе",
+                jdbcTemplate.queryForObject("SELECT name FROM category WHERE id = ?", String.class, saved.getId()));
+    }
+
+    @Test
+    void cachesAreFilledFromPrimary() {
+        Category saved = new Category();
+        saved.setName("Новая категория");
+        categoryService.save(saved);
+        jdbcTemplate.update("INSERT INTO product (id, name, creation_date, category_id, manufacturer, quantity, version) "
+                + "VALUES (2000, 'Новый экспонат', DATE '2024-01-01', ?, 'Эрмитаж', 1, 0)", saved.getId());
+        entityManagerFactory.getCache().evictAll();
+
+        // Статистика читает реплику, на которой новой категории еще нет, и не должна оставить ее список в кэше
+        authenticate("bob");
+        statisticsService.compute(0);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(categoryService.getAllCategories().stream().anyMatch(category -> category.getId().equals(saved.getId())));
+            assertEquals("Новая категория", categoryService.findById(saved.getId()).getName());
+            Product product = productService.get(2000L);
+            assertNotNull(product);
+            assertEquals(saved.getId(), product.getCategory().getId());
+        }
+    }
+
+    @Test
+    void clientReadsOwnWritesFromPrimaryWithinWindow() throws InterruptedException {
+        authenticate("alice");
+        assertEquals("PRIMARY", database(false));
+        assertEquals("PRIMARY", database(true));
+
+        authenticate("bob");
+        assertTrue(database(true).startsWith("REPLICA"));
+
+        Thread.sleep(1500);
+        authenticate("alice");
+        assertTrue(database(true).startsWith("REPLICA"));
+    }
+
+    /**
+     * Возвращает имя базы, на которой выполнилась транзакция с указанным признаком {@code readOnly}.
+     */
+    private String database(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT DATABASE()", String.class));
+    }
+
+    /**
+     * Выполняет действие с отдельным соединением с базой в обход источника данных приложения.
+     */
+    private static void execute(String url, Consumer<JdbcTemplate> action) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            action.accept(new JdbcTemplate(new SingleConnectionDataSource(connection, true)));
+        }
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, null, "ROLE_USER"));
+    }
+}
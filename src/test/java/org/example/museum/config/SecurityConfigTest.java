@@ -0,0 +1,81 @@
+package org.example.museum.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет ответ на вход, когда пул хэширования паролей перегружен: и форма входа, и HTTP Basic
+ * получают 503 с заголовком Retry-After, а обычная ошибка входа обрабатывается как прежде.
+ */
+@SpringBootTest(properties = "museum.security.hashing.retry-after=3s")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        when(userDetailsService.loadUserByUsername("alice"))
+                .thenReturn(User.withUsername("alice").password("hash").roles("USER").build());
+    }
+
+    @Test
+    void formLoginRejectedByHashingPoolReturnsRetryAfter() throws Exception {
+        when(passwordEncoder.matches(any(), anyString())).thenThrow(new PasswordHashingRejectedException());
+
+        mockMvc.perform(formLogin().user("alice").password("secret"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"));
+    }
+
+    @Test
+    void basicLoginRejectedByHashingPoolReturnsRetryAfter() throws Exception {
+        when(passwordEncoder.matches(any(), anyString())).thenThrow(new PasswordHashingRejectedException());
+
+        mockMvc.perform(get("/api/products/histogram").with(httpBasic("alice", "secret")))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"));
+    }
+
+    @Test
+    void wrongPasswordStillFailsAsBefore() throws Exception {
+        when(passwordEncoder.matches(any(), anyString())).thenReturn(false);
+
+        mockMvc.perform(formLogin().user("alice").password("wrong"))
+                .andExpect(redirectedUrl("/login?error"));
+        mockMvc.perform(get("/login?error"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Invalid credentials")));
+        mockMvc.perform(get("/api/products/histogram").with(httpBasic("alice", "wrong")))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string("WWW-Authenticate", "Basic realm=\"Realm\""));
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.museum.repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверяет, что списочные запросы {@link ProductRepository} выполняются одним SQL-запросом
+ * независимо от числа продуктов и категорий.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ProductRepositoryStatementCountTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void listQueriesIssueSingleStatement(int size) {
+        seed(size);
+
+        assertSingleStatement(size, () -> productRepository.findAll());
+        assertSingleStatement(size, () -> productRepository.search("Экспонат"));
+    }
+
+    private void assertSingleStatement(int size, Supplier<List<?>> query) {
+        entityManager.clear();
+        statistics.clear();
+        List<?> result = query.get();
+        assertEquals(size, result.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Сохраняет продукты так, чтобы у каждого была своя категория.
+     */
+    private void seed(int size) {
+        for (int i = 0; i < size; i++) {
+            Category category = new Category();
+            category.setName("Категория " + i);
+            entityManager.persist(category);
+
+            Product product = new Product();
+            product.setName("Экспонат " + i);
+            product.setArtist("Художник " + i);
+            product.setCreationDate(LocalDate.of(1900, 1, 1).plusDays(i));
+            product.setCategory(category);
+            product.setManufacturer("Мастерская");
+            product.setQuantity(i);
+            product.setDeliveryDate(LocalDate.now());
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+    }
+}
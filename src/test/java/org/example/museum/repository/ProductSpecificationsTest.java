@@ -0,0 +1,179 @@
+package org.example.museum.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.model.ProductFilter;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.Serial;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет отбор продуктов спецификациями {@link ProductSpecifications} и то, что база выполняет
+ * запрос по индексам таблицы продуктов. План запроса берется командой {@code EXPLAIN} встроенной базы H2
+ * для SQL, который сформировал Hibernate, поэтому потеря индекса или условие, не использующее индекс,
+ * обнаруживаются этим тестом.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.example.museum.repository.ProductSpecificationsTest$LastStatement")
+class ProductSpecificationsTest {
+
+    private static final int PRODUCTS = 2000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final List<Category> categories = new ArrayList<>();
+
+    private final List<Product> products = new ArrayList<>();
+
+    /**
+     * Запоминает последний SQL-запрос, подготовленный Hibernate.
+     */
+    public static class LastStatement implements StatementInspector {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String statement) {
+            sql = statement;
+            return statement;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 10; i++) {
+            Category category = new Category();
+            category.setName("Категория " + i);
+            entityManager.persist(category);
+            categories.add(category);
+        }
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName((i % 3 == 0 ? "Портрет " : "Пейзаж ") + i + (i % 50 == 0 ? " 100%_" : ""));
+            product.setArtist("Художник " + i % 40);
+            product.setCreationDate(LocalDate.of(1700 + i % 300, 1 + i % 12, 1 + i % 28));
+            product.setCategory(categories.get(i % categories.size()));
+            product.setManufacturer("Мастерская");
+            product.setQuantity(i % 5);
+            entityManager.persist(product);
+            products.add(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void filtersByEachField() {
+        Long categoryId = categories.get(3).getId();
+        LocalDate from = LocalDate.of(1800, 1, 1);
+        LocalDate to = LocalDate.of(1850, 12, 31);
+
+        assertIds(p -> p.getCategory().getId().equals(categoryId), new ProductFilter(categoryId, null, null, null, null));
+        assertIds(p -> p.getArtist().equals("Художник 7"), new ProductFilter(null, "Художник 7", null, null, null));
+        assertIds(p -> !p.getCreationDate().isBefore(from) && !p.getCreationDate().isAfter(to),
+                new ProductFilter(null, null, from, to, null));
+        assertIds(p -> !p.getCreationDate().isBefore(from), new ProductFilter(null, null, from, null, null));
+        assertIds(p -> !p.getCreationDate().isAfter(to), new ProductFilter(null, null, null, to, null));
+        assertIds(p -> p.getName().startsWith("Портрет 1"), new ProductFilter(null, null, null, null, "Портрет 1"));
+        assertIds(p -> p.getArtist().equals("Художник 3") && p.getCategory().getId().equals(categoryId)
+                        && !p.getCreationDate().isBefore(from) && p.getName().startsWith("Портрет"),
+                new ProductFilter(categoryId, "Художник 3", from, null, "Портрет"));
+        assertIds(p -> true, new ProductFilter(null, null, null, null, null));
+    }
+
+    @Test
+    void namePrefixMatchesWildcardsLiterally() {
+        assertIds(p -> p.getName().startsWith("Портрет 150 100%_"), new ProductFilter(null, null, null, null, "Портрет 150 100%_"));
+        assertIds(p -> false, new ProductFilter(null, null, null, null, "Портрет%"));
+        assertIds(p -> false, new ProductFilter(null, null, null, null, "_ортрет"));
+    }
+
+    @Test
+    void filtersUseIndexes() {
+        Long categoryId = categories.get(3).getId();
+        LocalDate from = LocalDate.of(1800, 1, 1);
+        LocalDate to = LocalDate.of(1850, 12, 31);
+
+        assertIndex("IDX_PRODUCT_CATEGORY_CREATION", new ProductFilter(categoryId, null, from, to, null),
+                categoryId, from, to);
+        assertIndex("IDX_PRODUCT_ARTIST_CREATION", new ProductFilter(null, "Художник 7", from, null, null),
+                "Художник 7", from);
+        assertIndex("IDX_PRODUCT_CREATION", new ProductFilter(null, null, from, to, null), from, to);
+        assertIndex("IDX_PRODUCT_NAME", new ProductFilter(null, null, null, null, "Портрет 1"), "Портрет 1%");
+    }
+
+    private void assertIds(Predicate<Product> expected, ProductFilter filter) {
+        List<Long> ids = products.stream().filter(expected).map(Product::getId).toList();
+        assertEquals(ids, selectIds(ProductSpecifications.matching(filter)), filter.toString());
+    }
+
+    /**
+     * Проверяет, что план запроса отбора по фильтру использует указанный индекс.
+     *
+     * @param parameters значения параметров запроса в порядке их следования в SQL.
+     */
+    private void assertIndex(String index, ProductFilter filter, Object... parameters) {
+        selectIds(ProductSpecifications.matching(filter));
+        String plan = explain(LastStatement.sql, parameters);
+        assertTrue(plan.toUpperCase(Locale.ROOT).contains("PUBLIC." + index + ":"), plan);
+    }
+
+    /**
+     * Выбирает идентификаторы продуктов по спецификации так же, как {@code ProductService}.
+     */
+    private List<Long> selectIds(Specification<Product> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(root.get("id")).orderBy(cb.asc(root.get("id")));
+        jakarta.persistence.criteria.Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private String explain(String sql, Object... parameters) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+}
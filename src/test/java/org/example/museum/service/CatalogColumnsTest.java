@@ -0,0 +1,135 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Сверяет итоги поколоночного снимка с подсчетом по самим продуктам, в том числе после
+ * обновлений и удалений. Снимок создается отдельно от контекста и заполняется напрямую,
+ * чтобы на него не влияли данные других тестов.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class CatalogColumnsTest {
+
+    private static final int PRODUCTS = 3000;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    private CatalogColumns columns;
+
+    private final List<Category> categories = new ArrayList<>();
+
+    private final Map<Long, Product> products = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        columns = beanFactory.createBean(CatalogColumns.class);
+        for (int i = 0; i < 4; i++) {
+            Category category = new Category();
+            category.setName("Категория " + i);
+            categories.add(categoryService.save(category));
+        }
+        for (long id = 1; id <= PRODUCTS; id++) {
+            save(product(id));
+        }
+    }
+
+    @Test
+    void summarizesDateRanges() {
+        LocalDate from = LocalDate.of(1850, 3, 1);
+        LocalDate to = LocalDate.of(1870, 10, 31);
+        assertSummary(p -> !p.getCreationDate().isBefore(from) && !p.getCreationDate().isAfter(to),
+                columns.summarize(CatalogColumns.DateField.CREATION, from, to, null));
+        assertSummary(p -> p.getDeliveryDate() != null,
+                columns.summarize(CatalogColumns.DateField.DELIVERY, null, null, null));
+        assertSummary(p -> p.getDeliveryDate() != null && p.getDeliveryDate().isAfter(LocalDate.of(2024, 6, 30)),
+                columns.summarize(CatalogColumns.DateField.DELIVERY, LocalDate.of(2024, 7, 1), null, null));
+        assertSummary(p -> "Художник 3".equals(p.getArtist()) && p.getCreationDate().isBefore(to.plusDays(1)),
+                columns.summarize(CatalogColumns.DateField.CREATION, null, to, "Художник 3"));
+        assertSummary(p -> false, columns.summarize(CatalogColumns.DateField.CREATION, null, null, "Неизвестный"));
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long id = 1 + random.nextInt(PRODUCTS + 200);
+            if (random.nextInt(3) == 0) {
+                products.remove(id);
+                columns.productDeleted(id);
+            } else {
+                Product product = product(id);
+                product.setQuantity(random.nextInt(100));
+                product.setCategory(categories.get(random.nextInt(categories.size())));
+                save(product);
+            }
+        }
+
+        assertEquals(products.size(), columns.size());
+        assertSummary(p -> true, columns.summarize(CatalogColumns.DateField.CREATION, null, null, null));
+        assertSummary(p -> p.getDeliveryDate() != null && p.getDeliveryDate().getMonthValue() == 1,
+                columns.summarize(CatalogColumns.DateField.DELIVERY, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), null));
+    }
+
+    @Test
+    void rejectsInvertedRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> columns.summarize(CatalogColumns.DateField.CREATION, LocalDate.of(2000, 1, 2), LocalDate.of(2000, 1, 1), null));
+    }
+
+    private Product product(long id) {
+        int i = (int) id;
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Экспонат " + i);
+        product.setArtist(i % 9 == 0 ? null : "Художник " + i % 17);
+        product.setCreationDate(LocalDate.of(1800 + i % 100, 1 + i % 12, 1 + i % 28));
+        product.setDeliveryDate(i % 4 == 0 ? null : LocalDate.of(2024, 1 + i % 12, 1 + i % 28));
+        product.setCategory(categories.get(i % categories.size()));
+        product.setManufacturer("Мастерская");
+        product.setQuantity(i % 7);
+        return product;
+    }
+
+    private void save(Product product) {
+        products.put(product.getId(), product);
+        columns.productSaved(product);
+    }
+
+    private void assertSummary(Predicate<Product> filter, CatalogColumns.Summary summary) {
+        List<Product> selected = products.values().stream().filter(filter).toList();
+        assertEquals(selected.size(), summary.products());
+        assertEquals(selected.stream().mapToLong(Product::getQuantity).sum(), summary.quantity());
+        Map<Long, long[]> expected = new HashMap<>();
+        for (Product product : selected) {
+            long[] totals = expected.computeIfAbsent(product.getCategory().getId(), id -> new long[2]);
+            totals[0]++;
+            totals[1] += product.getQuantity();
+        }
+        assertEquals(expected.size(), summary.categories().size());
+        for (CatalogStatistics.CategoryTotals totals : summary.categories()) {
+            assertEquals(expected.get(totals.id())[0], totals.products());
+            assertEquals(expected.get(totals.id())[1], totals.quantity());
+            assertEquals(categories.stream().filter(c -> c.getId().equals(totals.id())).findFirst().orElseThrow().getName(),
+                    totals.name());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверяет, что статистика каталога не зависит от числа потоков подсчета и совпадает
+ * с подсчетом по сохраненным продуктам. Маленький размер пачки заставляет строки
+ * распределяться между потоками.
+ */
+@SpringBootTest(properties = {"museum.stats.parallelism=4", "museum.stats.chunk-size=7", "museum.stats.fetch-size=5"})
+@ActiveProfiles("h2")
+class CatalogStatisticsServiceTest {
+
+    private static final int PRODUCTS = 250;
+
+    @Autowired
+    private CatalogStatisticsService statisticsService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAllInBatch();
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Category category = new Category();
+            category.setName("Категория " + i);
+            categories.add(categoryService.save(category));
+        }
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Экспонат " + i);
+            product.setArtist(i % 11 == 0 ? null : "Художник " + (i * 7 % 13));
+            product.setCreationDate(LocalDate.of(1800 + i % 40, 1 + i % 12, 1 + i % 28));
+            product.setCategory(categories.get(i % 3));
+            product.setManufacturer("Мастерская");
+            product.setQuantity(i % 6);
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+    }
+
+    @Test
+    void resultDoesNotDependOnThreads() {
+        CatalogStatistics single = statisticsService.compute(CatalogStatisticsService.MAX_TOP_ARTISTS, 1);
+        for (int threads = 2; threads <= 4; threads++) {
+            assertEquals(single, statisticsService.compute(CatalogStatisticsService.MAX_TOP_ARTISTS, threads));
+        }
+        assertEquals(single, statisticsService.compute(CatalogStatisticsService.MAX_TOP_ARTISTS));
+    }
+
+    @Test
+    void totalsMatchProducts() {
+        CatalogStatistics statistics = statisticsService.compute(3, 4);
+
+        assertEquals(PRODUCTS, statistics.products());
+        assertEquals(products.stream().mapToLong(Product::getQuantity).sum(), statistics.quantity());
+        assertEquals(products.stream().filter(p -> p.getQuantity() == 0).count(), statistics.outOfStock());
+        assertEquals(products.stream().filter(p -> p.getArtist() == null).count(), statistics.withoutArtist());
+        assertEquals(products.stream().map(Product::getCreationDate).min(LocalDate::compareTo).orElseThrow(),
+                statistics.earliestCreationDate());
+        assertEquals(products.stream().map(Product::getCreationDate).max(LocalDate::compareTo).orElseThrow(),
+                statistics.latestCreationDate());
+
+        Map<Integer, Long> years = new TreeMap<>();
+        products.forEach(p -> years.merge(p.getCreationDate().getYear(), 1L, Long::sum));
+        assertEquals(years, statistics.creationYears());
+
+        Map<String, Long> artists = new TreeMap<>();
+        products.stream().filter(p -> p.getArtist() != null).forEach(p -> artists.merge(p.getArtist(), 1L, Long::sum));
+        assertEquals(artists.size(), statistics.artists());
+        assertEquals(3, statistics.topArtists().size());
+        List<Long> expectedTop = artists.values().stream().sorted((a, b) -> Long.compare(b, a)).limit(3).toList();
+        assertEquals(expectedTop, statistics.topArtists().stream().map(CatalogStatistics.ArtistCount::products).toList());
+
+        assertEquals(3, statistics.categories().size());
+        for (CatalogStatistics.CategoryTotals totals : statistics.categories()) {
+            List<Product> inCategory = products.stream()
+                    .filter(p -> p.getCategory().getId().equals(totals.id()))
+                    .toList();
+            assertEquals(inCategory.get(0).getCategory().getName(), totals.name());
+            assertEquals(inCategory.size(), totals.products());
+            assertEquals(inCategory.stream().mapToLong(Product::getQuantity).sum(), totals.quantity());
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> statisticsService.compute(-1));
+        assertThrows(IllegalArgumentException.class, () -> statisticsService.compute(CatalogStatisticsService.MAX_TOP_ARTISTS + 1));
+        assertThrows(IllegalArgumentException.class, () -> statisticsService.compute(10, 5));
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.museum.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сверяет агрегаты {@link DeliveryHistogram} с агрегацией тех же продуктов в базе данных
+ * (группировка по дате поставки), которую гистограмма заменила. Гистограмма заполняется так же,
+ * как при старте приложения, и затем следует за обновлениями и удалениями продуктов.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class DeliveryHistogramTest {
+
+    private static final int PRODUCTS = 500;
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final Random random = new Random(7);
+
+    private final List<Product> products = new ArrayList<>();
+
+    private DeliveryHistogram histogram;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAllInBatch();
+        category = new Category();
+        category.setName("Живопись");
+        category = categoryService.save(category);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Экспонат " + i);
+            product.setArtist("Художник " + i % 13);
+            product.setCreationDate(LocalDate.of(1800 + i % 100, 1 + i % 12, 1 + i % 28));
+            product.setCategory(category);
+            product.setManufacturer("Мастерская");
+            product.setQuantity(i % 9);
+            product.setDeliveryDate(randomDeliveryDate());
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+
+        // Как при старте приложения: все продукты каталога передаются обработчику
+        histogram = new DeliveryHistogram();
+        productRepository.findAll().forEach(histogram::productSaved);
+    }
+
+    @Test
+    void matchesDatabaseAggregation() {
+        assertMatchesDatabase();
+    }
+
+    @Test
+    void followsUpdatesThatMoveProductsBetweenDays() {
+        for (int i = 0; i < 300; i++) {
+            Product product = products.get(random.nextInt(products.size()));
+            switch (random.nextInt(4)) {
+                case 0 -> product.setDeliveryDate(null);
+                case 1 -> product.setDeliveryDate(product.getDeliveryDate() == null ? TODAY : product.getDeliveryDate().plusDays(1));
+                case 2 -> product.setQuantity(random.nextInt(20));
+                default -> product.setDeliveryDate(randomDeliveryDate());
+            }
+            Product saved = productRepository.save(product);
+            products.set(products.indexOf(product), saved);
+            histogram.productSaved(saved);
+        }
+        for (int i = 0; i < 50; i++) {
+            Product product = products.remove(random.nextInt(products.size()));
+            productRepository.deleteById(product.getId());
+            histogram.productDeleted(product.getId());
+        }
+
+        assertMatchesDatabase();
+    }
+
+    @Test
+    void keepsFarDeliveryDatesOutsideDenseRange() {
+        LocalDate[] farDates = {LocalDate.of(9999, 12, 31), LocalDate.MAX, LocalDate.MIN, TODAY.minusYears(200)};
+        for (int i = 0; i < farDates.length; i++) {
+            histogram.productSaved(detached(-1L - i, farDates[i], 1000 + i));
+        }
+        assertMatchesDatabase();
+        assertEquals(Map.of(LocalDate.MAX, 1001L), histogram.quantitiesBetween(LocalDate.MAX.minusDays(2), LocalDate.MAX));
+        assertEquals(Map.of(LocalDate.of(9999, 12, 1), 1000L, LocalDate.of(10000, 1, 1), 0L),
+                histogram.quantitiesByBucket(LocalDate.of(9999, 12, 1), LocalDate.of(10000, 1, 1), DeliveryHistogram.Bucket.MONTH));
+
+        // Перенос в покрытый диапазон и удаление убирают вклад далеких дат
+        histogram.productSaved(detached(-1L, TODAY, 7));
+        histogram.productDeleted(-2L);
+        histogram.productDeleted(-3L);
+        histogram.productDeleted(-4L);
+        assertEquals(Map.of(), histogram.quantitiesBetween(LocalDate.of(9999, 12, 31), LocalDate.of(9999, 12, 31)));
+        assertEquals(databaseTotals(TODAY, TODAY).getOrDefault(TODAY, 0L) + 7, histogram.quantitiesBetween(TODAY, TODAY).get(TODAY));
+    }
+
+    private Product detached(Long id, LocalDate deliveryDate, int quantity) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Экспонат вне каталога");
+        product.setCategory(category);
+        product.setQuantity(quantity);
+        product.setDeliveryDate(deliveryDate);
+        return product;
+    }
+
+    private void assertMatchesDatabase() {
+        // Окно прежнего подсчета: последние 14 дней, только даты с продуктами
+        assertEquals(databaseTotals(TODAY.minusDays(14), TODAY), histogram.quantitiesBetween(TODAY.minusDays(14), TODAY));
+        assertEquals(databaseTotals(TODAY.minusDays(60), TODAY.plusDays(10)),
+                histogram.quantitiesBetween(TODAY.minusDays(60), TODAY.plusDays(10)));
+
+        LocalDate from = TODAY.minusDays(45);
+        LocalDate to = TODAY.plusDays(3);
+        for (DeliveryHistogram.Bucket bucket : DeliveryHistogram.Bucket.values()) {
+            Map<LocalDate, Long> expected = new LinkedHashMap<>();
+            for (LocalDate start = bucket.start(from); !start.isAfter(to); start = bucket.next(start)) {
+                expected.put(start, 0L);
+            }
+            databaseTotals(from, to).forEach((day, quantity) -> expected.merge(bucket.start(day), quantity, Long::sum));
+            assertEquals(expected, histogram.quantitiesByBucket(from, to, bucket), bucket.name());
+        }
+    }
+
+    /**
+     * Суммы количества по датам поставки в диапазоне {@code [from, to]}, подсчитанные базой данных.
+     */
+    private Map<LocalDate, Long> databaseTotals(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> totals = new LinkedHashMap<>();
+        entityManager.createQuery("""
+                        SELECT p.deliveryDate, SUM(p.quantity) FROM Product p
+                        WHERE p.deliveryDate BETWEEN :from AND :to
+                        GROUP BY p.deliveryDate ORDER BY p.deliveryDate""", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList()
+                .forEach(row -> totals.put((LocalDate) row[0], ((Number) row[1]).longValue()));
+        return totals;
+    }
+
+    /**
+     * Дата поставки в пределах 40 дней до и 5 дней после сегодняшнего дня; примерно у каждого пятого продукта ее нет.
+     */
+    private LocalDate randomDeliveryDate() {
+        return random.nextInt(5) == 0 ? null : TODAY.minusDays(random.nextInt(46) - 5);
+    }
+}
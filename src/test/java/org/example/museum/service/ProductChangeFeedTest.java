@@ -0,0 +1,130 @@
+package org.example.museum.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет рассылку ленты изменений: зависший подписчик не задерживает остальных и отключается
+ * при переполнении очереди, а переподключившийся клиент получает пропущенные события.
+ * Лента создается отдельно от контекста, чтобы на нее не влияли изменения других тестов.
+ */
+@SpringBootTest(properties = {"museum.changes.history-size=4", "museum.changes.subscriber-queue=2",
+        "museum.changes.heartbeat-ms=3600000"})
+@ActiveProfiles("h2")
+class ProductChangeFeedTest {
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    private ProductChangeFeed feed;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        feed = beanFactory.createBean(ProductChangeFeed.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        feed.close();
+    }
+
+    @Test
+    void stalledSubscriberDoesNotDelayOthers() {
+        RecordingEmitter stalled = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        feed.subscribe(stalled, null);
+        feed.subscribe(fast, null);
+        await(() -> feed.subscriberCount() == 2);
+
+        // Каждое событие доходит до быстрого подписчика, пока первое событие зависшего еще не отправлено
+        for (int id = 1; id <= 20; id++) {
+            feed.onProductChanged(ProductChangedEvent.deleted((long) id));
+            int received = id;
+            await(() -> fast.events.size() == received);
+        }
+
+        assertTrue(fast.events.get(19).contains("data:{\"id\":20}"), fast.events.get(19));
+        // Очередь зависшего подписчика вмещает буфер истории и еще два события, затем он отключается
+        assertEquals(1, feed.subscriberCount());
+        assertEquals(0, stalled.events.size());
+    }
+
+    @Test
+    void resumesAfterLastEventId() {
+        RecordingEmitter live = new RecordingEmitter(null);
+        feed.subscribe(live, null);
+        await(() -> feed.subscriberCount() == 1);
+        for (long id = 1; id <= 3; id++) {
+            feed.onProductChanged(ProductChangedEvent.deleted(id));
+        }
+        await(() -> live.events.size() == 3);
+        String firstId = live.events.get(0).lines().filter(line -> line.startsWith("id:")).findFirst().orElseThrow().substring(3);
+
+        RecordingEmitter resumed = new RecordingEmitter(null);
+        feed.subscribe(resumed, firstId);
+        RecordingEmitter stale = new RecordingEmitter(null);
+        feed.subscribe(stale, "другой-запуск-1");
+
+        await(() -> resumed.events.size() == 2 && stale.events.size() == 1);
+        assertEquals(live.events.subList(1, 3), resumed.events);
+        assertTrue(stale.events.get(0).contains("event:reset"), stale.events.get(0));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Условие не выполнено за 5 секунд");
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Соединение, запоминающее отправленные события, кроме комментариев {@code heartbeat}. Если задана защелка,
+     * отправка ждет ее, как запись в соединение клиента, который перестал читать.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+                return;
+            }
+            String event = builder.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining());
+            if (!event.startsWith(":")) {
+                events.add(event);
+            }
+        }
+    }
+}
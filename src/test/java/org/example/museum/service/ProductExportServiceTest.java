@@ -0,0 +1,168 @@
+package org.example.museum.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверяет выгрузку каталога: формат строк, обратную загрузку выгрузки (в том числе значений
+ * с переводом строки) и прекращение чтения при ошибке записи. Маленький размер выборки заставляет курсор
+ * читать каталог несколькими порциями.
+ */
+@SpringBootTest(properties = {"museum.export.fetch-size=3", "museum.export.flush-rows=2"})
+@ActiveProfiles("h2")
+class ProductExportServiceTest {
+
+    private static final int PRODUCTS = 20;
+
+    @Autowired
+    private ProductExportService exportService;
+
+    @Autowired
+    private ProductIngestService ingestService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAllInBatch();
+        Category category = new Category();
+        category.setName("Живопись, графика");
+        category = categoryService.save(category);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName(i == 0 ? "Портрет \"в кавычках\"" : "Экспонат " + i);
+            product.setArtist(i % 5 == 0 ? null : "Художник " + i);
+            product.setCreationDate(LocalDate.of(1900 + i, 1, 1));
+            product.setCategory(category);
+            product.setManufacturer("Мастерская");
+            product.setQuantity(i);
+            product.setDeliveryDate(i % 2 == 0 ? LocalDate.of(2024, 1, 1 + i) : null);
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+    }
+
+    @Test
+    void exportsCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(PRODUCTS, exportService.export(out, ProductIngestService.Format.CSV));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(PRODUCTS + 1, lines.length);
+        assertEquals("id,name,artist,creationDate,category,manufacturer,quantity,deliveryDate", lines[0]);
+        Product first = products.get(0);
+        assertEquals(first.getId() + ",\"Портрет \"\"в кавычках\"\"\",,1900-01-01,\"Живопись, графика\",Мастерская,0,2024-01-01",
+                lines[1]);
+        Product second = products.get(1);
+        assertEquals(second.getId() + ",Экспонат 1,Художник 1,1901-01-01,\"Живопись, графика\",Мастерская,1,", lines[2]);
+    }
+
+    @Test
+    void exportsNdjsonInIdOrder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, ProductIngestService.Format.NDJSON);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(PRODUCTS, lines.length);
+        for (int i = 0; i < PRODUCTS; i++) {
+            JsonNode node = objectMapper.readTree(lines[i]);
+            assertEquals(products.get(i).getId(), node.get("id").asLong());
+            assertEquals(products.get(i).getName(), node.get("name").asText());
+            assertEquals("Живопись, графика", node.get("category").get("name").asText());
+        }
+    }
+
+    @Test
+    void exportCanBeIngestedBack() throws IOException {
+        for (ProductIngestService.Format format : ProductIngestService.Format.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            exportService.export(out, format);
+            productRepository.deleteAllInBatch();
+
+            ProductIngestReport report = ingestService.ingest(new ByteArrayInputStream(out.toByteArray()), format);
+
+            assertEquals(PRODUCTS, report.getInserted(), format.name());
+            assertEquals(0, report.getRejected(), format.name());
+            List<String> names = productRepository.findAll().stream().map(Product::getName).sorted().toList();
+            assertEquals(products.stream().map(Product::getName).sorted().toList(), names);
+        }
+    }
+
+    @Test
+    void multiLineValuesSurviveCsvRoundTrip() throws IOException {
+        Product product = products.get(1);
+        product.setName("Триптих\n\"Утро\", \"Вечер\"");
+        product.setManufacturer("Мастерская\n\nна Неве");
+        productRepository.save(product);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, ProductIngestService.Format.CSV);
+        productRepository.deleteAllInBatch();
+
+        ProductIngestReport report = ingestService.ingest(new ByteArrayInputStream(out.toByteArray()), ProductIngestService.Format.CSV);
+
+        assertEquals(PRODUCTS, report.getInserted());
+        assertEquals(0, report.getRejected());
+        Product loaded = productRepository.findAll().stream()
+                .filter(p -> p.getName().startsWith("Триптих")).findFirst().orElseThrow();
+        assertEquals(product.getName(), loaded.getName());
+        assertEquals(product.getManufacturer(), loaded.getManufacturer());
+        assertEquals(products.stream().map(Product::getName).sorted().toList(),
+                productRepository.findAll().stream().map(Product::getName).sorted().toList());
+    }
+
+    @Test
+    void stopsReadingWhenWriteFails() {
+        int[] flushes = new int[1];
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (++flushes[0] == 2) {
+                    throw new IOException("Клиент отключился");
+                }
+            }
+        };
+
+        IOException e = assertThrows(IOException.class,
+                () -> exportService.export(disconnected, ProductIngestService.Format.NDJSON));
+        assertEquals("Клиент отключился", e.getMessage());
+        // После ошибки строки больше не читаются и поток не сбрасывается
+        assertEquals(2, flushes[0]);
+    }
+}
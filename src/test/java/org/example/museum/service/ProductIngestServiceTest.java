@@ -0,0 +1,110 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Product;
+import org.example.museum.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверяет пакетную загрузку продуктов: строка, отклоненная базой данных, отклоняется одна,
+ * а остальные строки ее пакета вставляются ровно один раз. Маленький размер пакета заставляет
+ * загрузку разбиваться на несколько пакетов, а маленький предел записи CSV — быстро отбрасывать
+ * запись с незакрытой кавычкой.
+ */
+@SpringBootTest(properties = {"museum.ingest.batch-size=4", "museum.ingest.max-record-lines=5"})
+@ActiveProfiles("h2")
+class ProductIngestServiceTest {
+
+    private static final String HEADER = "name,artist,creationDate,category,manufacturer,quantity,deliveryDate";
+
+    @Autowired
+    private ProductIngestService ingestService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void rejectsOnlyRowRefusedByDatabase() throws IOException {
+        // Название длиннее столбца проходит разбор, но отклоняется базой в середине второго пакета
+        String csv = IntStream.range(0, 10)
+                .mapToObj(i -> (i == 5 ? "X".repeat(300) : "Экспонат " + i) + ",Художник,1900-01-01,Живопись,Мастерская," + i + ",")
+                .collect(Collectors.joining("\n", HEADER + "\n", "\n"));
+
+        ProductIngestReport report = ingest(csv, ProductIngestService.Format.CSV);
+
+        assertEquals(9, report.getInserted());
+        assertEquals(1, report.getRejected());
+        assertEquals(7, report.getErrors().get(0).line());
+        List<String> names = productRepository.findAll().stream().map(Product::getName).sorted().toList();
+        assertEquals(IntStream.range(0, 10).filter(i -> i != 5).mapToObj(i -> "Экспонат " + i).toList(), names);
+    }
+
+    @Test
+    void reportsInvalidRowsAndLoadsTheRest() throws IOException {
+        String ndjson = """
+                {"name":"Мона Лиза","artist":"Леонардо","creationDate":"1503-01-01","category":{"name":"Живопись"},"manufacturer":"Лувр","quantity":2}
+                {"name":"Без даты","category":"Живопись","manufacturer":"Лувр"}
+                не JSON
+
+                {"name":"Давид","creationDate":"1504-01-01","category":"Скульптура","manufacturer":"Академия","deliveryDate":"2024-05-01"}
+                """;
+
+        ProductIngestReport report = ingest(ndjson, ProductIngestService.Format.NDJSON);
+
+        assertEquals(2, report.getInserted());
+        assertEquals(List.of(2L, 3L), report.getErrors().stream().map(ProductIngestReport.RowError::line).toList());
+        assertEquals(2, productRepository.count());
+    }
+
+    @Test
+    void readsQuotedValuesSpanningLines() throws IOException {
+        String csv = HEADER + "\n"
+                + "\"Триптих\n\"\"Утро\"\"\",Художник,1900-01-01,Живопись,\"Мастерская\n\nна Неве\",1,\n"
+                + "Без количества,Художник,1900-01-01,Живопись,Мастерская,много,\n"
+                + "\"Незакрытая,Художник,1900-01-01,Живопись,Мастерская,1,\n";
+
+        ProductIngestReport report = ingest(csv, ProductIngestService.Format.CSV);
+
+        assertEquals(1, report.getInserted());
+        // Номера строк считаются по физическим строкам, запись занимает строки со 2-й по 5-ю
+        assertEquals(List.of(6L, 7L), report.getErrors().stream().map(ProductIngestReport.RowError::line).toList());
+        Product product = productRepository.findAll().get(0);
+        assertEquals("Триптих\n\"Утро\"", product.getName());
+        assertEquals("Мастерская\n\nна Неве", product.getManufacturer());
+    }
+
+    @Test
+    void rejectsOnlyRecordWithUnclosedQuote() throws IOException {
+        String csv = IntStream.range(0, 12)
+                .mapToObj(i -> (i == 1 ? "\"Незакрытая" : "Экспонат " + i) + ",Художник,1900-01-01,Живопись,Мастерская," + i + ",")
+                .collect(Collectors.joining("\n", HEADER + "\n", "\n"));
+
+        ProductIngestReport report = ingest(csv, ProductIngestService.Format.CSV);
+
+        assertEquals(11, report.getInserted());
+        assertEquals(List.of(3L), report.getErrors().stream().map(ProductIngestReport.RowError::line).toList());
+        List<String> names = productRepository.findAll().stream().map(Product::getName).sorted().toList();
+        assertEquals(IntStream.range(0, 12).filter(i -> i != 1).mapToObj(i -> "Экспонат " + i).sorted().toList(), names);
+    }
+
+    private ProductIngestReport ingest(String input, ProductIngestService.Format format) throws IOException {
+        return ingestService.ingest(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format);
+    }
+}
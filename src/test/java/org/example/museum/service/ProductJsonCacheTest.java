@@ -0,0 +1,113 @@
+package org.example.museum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.model.ProductSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверяет, что списки, собранные из {@link ProductJsonCache}, совпадают по байтам
+ * с сериализацией {@link ProductSummary} через {@link ObjectMapper} приложения.
+ */
+@JsonTest
+@Import(ProductJsonCache.class)
+class ProductJsonCacheTest {
+
+    @Autowired
+    private ProductJsonCache cache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cache.all().forEach(row -> cache.productDeleted(row.id()));
+        Category painting = category(1L, "Живопись");
+        Category sculpture = category(2L, "Скульптура \"модерн\"");
+        products.add(product(1L, "Мона Лиза", painting, "Лувр", 2, LocalDate.of(2024, 3, 1)));
+        products.add(product(2L, "Строка с \\ и \n переводом", painting, "MoMA", 0, null));
+        products.add(product(3L, "Давид </script> & 😀", sculpture, null, 17, LocalDate.of(1999, 12, 31)));
+        products.add(product(4L, "Без категории", null, "Академия", -1, LocalDate.of(2024, 1, 1)));
+        products.forEach(cache::productSaved);
+    }
+
+    @Test
+    void allMatchesObjectMapper() throws IOException {
+        assertArrayEquals(serialize(products), write(cache.all()));
+    }
+
+    @Test
+    void subsetsMatchObjectMapper() throws IOException {
+        assertArrayEquals(serialize(List.of(products.get(2), products.get(0))), write(cache.get(List.of(3L, 1L))));
+        assertArrayEquals(serialize(products.subList(1, 3)), write(cache.after(1L, 2)));
+        assertArrayEquals(serialize(List.of()), write(cache.get(List.of(42L))));
+    }
+
+    @Test
+    void followsSavesAndDeletes() throws IOException {
+        Product updated = product(2L, "Обновленный", products.get(0).getCategory(), "MoMA", 5, LocalDate.of(2025, 5, 5));
+        updated.setVersion(1);
+        cache.productSaved(updated);
+        cache.productDeleted(4L);
+
+        assertArrayEquals(serialize(List.of(products.get(0), updated, products.get(2))), write(cache.all()));
+    }
+
+    @Test
+    void keepsNewerVersion() throws IOException {
+        Product newer = product(1L, "Новая версия", products.get(0).getCategory(), "Лувр", 3, null);
+        newer.setVersion(2);
+        cache.productSaved(newer);
+        cache.productSaved(products.get(0));
+
+        assertEquals(2, cache.get(List.of(1L)).get(0).version());
+        assertArrayEquals(serialize(List.of(newer)), write(cache.get(List.of(1L))));
+    }
+
+    private byte[] serialize(List<Product> expected) throws IOException {
+        return objectMapper.writeValueAsBytes(expected.stream().map(ProductSummary::of).toList());
+    }
+
+    private static byte[] write(List<ProductJsonCache.CachedRow> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProductJsonCache.writeArray(out, rows);
+        return out.toByteArray();
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+    private static Product product(Long id, String name, Category category, String manufacturer,
+                                   int quantity, LocalDate deliveryDate) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setArtist("Художник");
+        product.setCreationDate(LocalDate.of(1500, 1, 1));
+        product.setCategory(category);
+        product.setManufacturer(manufacturer);
+        product.setQuantity(quantity);
+        product.setDeliveryDate(deliveryDate);
+        return product;
+    }
+}
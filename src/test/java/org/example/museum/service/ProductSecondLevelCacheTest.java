@@ -0,0 +1,171 @@
+package org.example.museum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.repository.CategoryRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что продукты и категории читаются из кэша второго уровня и что после сохранения
+ * или удаления следующее чтение не возвращает устаревшие данные.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ProductSecondLevelCacheTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private SessionFactory sessionFactory;
+
+    private Statistics statistics;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        category = category("Живопись");
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+    }
+
+    @Test
+    void productIsReadFromCacheAfterFirstLoad() {
+        Long id = productService.save(product("Мона Лиза", 2)).getId();
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+
+        assertEquals("Мона Лиза", productService.get(id).getName());
+        long statements = statistics.getPrepareStatementCount();
+        assertEquals("Мона Лиза", productService.get(id).getName());
+        assertEquals("Живопись", productService.get(id).getCategory().getName());
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getDomainDataRegionStatistics(Product.CACHE_REGION).getHitCount() >= 2);
+    }
+
+    @Test
+    void savedProductIsNotReadStale() {
+        Product product = productService.save(product("Мона Лиза", 2));
+        productService.get(product.getId());
+        assertTrue(sessionFactory.getCache().containsEntity(Product.class, product.getId()));
+
+        product.setName("Джоконда");
+        product.setQuantity(5);
+        productService.save(product);
+
+        Product read = productService.get(product.getId());
+        assertEquals("Джоконда", read.getName());
+        assertEquals(5, read.getQuantity());
+        assertEquals(1, read.getVersion());
+    }
+
+    @Test
+    void patchedProductIsNotReadStale() throws IOException {
+        Category sculpture = category("Скульптура");
+        Long id = productService.save(product("Давид", 1)).getId();
+        productService.get(id);
+
+        ObjectNode changes = objectMapper.createObjectNode().put("quantity", 3);
+        changes.putObject("category").put("id", sculpture.getId());
+        productService.patch(id, changes);
+
+        Product read = productService.get(id);
+        assertEquals(3, read.getQuantity());
+        assertEquals("Скульптура", read.getCategory().getName());
+    }
+
+    @Test
+    void deletedProductIsNotReadFromCache() {
+        Long id = productService.save(product("Мона Лиза", 2)).getId();
+        productService.get(id);
+        assertTrue(sessionFactory.getCache().containsEntity(Product.class, id));
+
+        productService.delete(id);
+
+        assertNull(productService.get(id));
+    }
+
+    @Test
+    void categoryListIsReadFromQueryCacheUntilCategoriesChange() {
+        List<Category> before = categoryRepository.findAll();
+        categoryRepository.findAll();
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        Category created = category("Графика");
+
+        List<String> names = categoryRepository.findAll().stream().map(Category::getName).toList();
+        assertEquals(before.size() + 1, names.size());
+        assertTrue(names.contains("Графика"));
+
+        created.setName("Гравюра");
+        categoryService.save(created);
+        assertEquals("Гравюра", categoryRepository.findById(created.getId()).orElseThrow().getName());
+        assertTrue(categoryRepository.findAll().stream().anyMatch(c -> c.getName().equals("Гравюра")));
+    }
+
+    @Test
+    void categoryServiceReadsFromHibernateCaches() {
+        categoryService.getAllCategories();
+        categoryService.findById(category.getId());
+        long statements = statistics.getPrepareStatementCount();
+
+        assertTrue(categoryService.getAllCategories().stream().anyMatch(c -> c.getName().equals("Живопись")));
+        assertEquals("Живопись", categoryService.findById(category.getId()).getName());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+
+        category.setName("Живопись маслом");
+        categoryService.save(category);
+        assertEquals("Живопись маслом", categoryService.findById(category.getId()).getName());
+        assertTrue(categoryService.getAllCategories().stream().anyMatch(c -> c.getName().equals("Живопись маслом")));
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return categoryService.save(category);
+    }
+
+    private Product product(String name, int quantity) {
+        Product product = new Product();
+        product.setName(name);
+        product.setArtist("Леонардо да Винчи");
+        product.setCreationDate(LocalDate.of(1503, 1, 1));
+        product.setCategory(category);
+        product.setManufacturer("Лувр");
+        product.setQuantity(quantity);
+        product.setDeliveryDate(LocalDate.of(2024, 3, 1));
+        return product;
+    }
+}
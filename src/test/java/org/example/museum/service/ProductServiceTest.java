@@ -0,0 +1,170 @@
+package org.example.museum.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.museum.model.Category;
+import org.example.museum.model.Product;
+import org.example.museum.model.ProductFilter;
+import org.example.museum.model.ProductSummary;
+import org.example.museum.repository.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.inOrder;
+
+/**
+ * Проверяет, что продукты, сохраненные через {@link ProductService}, попадают в кэш JSON
+ * {@link ProductJsonCache} в том же виде, в каком их прочитала бы база данных, раньше, чем меняется
+ * версия каталога, и отбор страниц по фильтру вместе с ключевым словом.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ProductServiceTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @MockitoSpyBean
+    private ProductJsonCache jsonCache;
+
+    @MockitoSpyBean
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private List<ProductChangeListener> changeListeners;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setName("Графика");
+        category = categoryService.save(category);
+    }
+
+    @Test
+    void savedProductWithCategoryIdIsCachedWithCategoryName() throws IOException {
+        // Так категорию передает форма нового продукта: только идентификатор
+        Category reference = new Category();
+        reference.setId(category.getId());
+        Product product = new Product();
+        product.setName("Этюд");
+        product.setArtist("Серов");
+        product.setCreationDate(LocalDate.of(1887, 1, 1));
+        product.setCategory(reference);
+        product.setManufacturer("Мастерская");
+        product.setQuantity(1);
+
+        Product saved = productService.save(product);
+
+        JsonNode cached = cachedJson(saved.getId());
+        assertEquals(category.getId().longValue(), cached.path("category").path("id").asLong());
+        assertEquals("Графика", cached.path("category").path("name").asText());
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(
+                ProductSummary.of(productRepository.findById(saved.getId()).orElseThrow()))), cached);
+    }
+
+    @Test
+    void catalogVersionChangesAfterJsonCacheIsUpdated() {
+        Product product = new Product();
+        product.setName("Натюрморт");
+        product.setCreationDate(LocalDate.of(1910, 1, 1));
+        product.setCategory(category);
+        product.setManufacturer("Мастерская");
+        product.setQuantity(1);
+
+        // Запрос, прочитавший новый ETag, должен получить из кэша уже новые данные
+        Product saved = productService.save(product);
+        InOrder order = inOrder(jsonCache, catalogVersion);
+        order.verify(jsonCache).productSaved(saved);
+        order.verify(catalogVersion).increment();
+
+        productService.delete(saved.getId());
+        order.verify(jsonCache).productDeleted(saved.getId());
+        order.verify(catalogVersion).increment();
+    }
+
+    @Test
+    void pagesThroughFilterWithKeyword() {
+        // Совпадений с ключевым словом больше одной порции идентификаторов, с фильтром — примерно треть из них
+        productRepository.deleteAllInBatch();
+        Category other = new Category();
+        other.setName("Скульптура");
+        other = categoryService.save(other);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Product product = new Product();
+            product.setName((i % 2 == 0 ? "Гравюра " : "Литография ") + i);
+            product.setArtist("Художник");
+            product.setCreationDate(LocalDate.of(1900, 1, 1));
+            product.setCategory(i % 3 == 0 ? category : other);
+            product.setManufacturer("Мастерская");
+            product.setQuantity(1);
+            products.add(product);
+        }
+        productRepository.saveAll(products).forEach(saved -> changeListeners.forEach(listener -> listener.productSaved(saved)));
+        List<Long> expected = IntStream.range(0, products.size()).filter(i -> i % 6 == 0)
+                .mapToObj(i -> products.get(i).getId()).toList();
+        ProductFilter filter = new ProductFilter(category.getId(), null, null, null, null);
+
+        assertEquals(expected, ids(productService.filterJson(filter, "гравюра")));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> paged = new ArrayList<>();
+        Long after = null;
+        while (true) {
+            statistics.clear();
+            List<Long> page = ids(productService.filterPageJson(filter, "гравюра", after, 50));
+            // Из базы читается не больше строк, чем помещается на страницу
+            long rows = Arrays.stream(statistics.getQueries())
+                    .mapToLong(query -> statistics.getQueryStatistics(query).getExecutionRowCount()).sum();
+            assertTrue(rows <= 50, String.valueOf(rows));
+            if (page.isEmpty()) {
+                break;
+            }
+            assertTrue(page.size() <= 50);
+            paged.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+        assertEquals(expected, paged);
+    }
+
+    private static List<Long> ids(List<ProductJsonCache.CachedRow> rows) {
+        return rows.stream().map(ProductJsonCache.CachedRow::id).toList();
+    }
+
+    private JsonNode cachedJson(Long id) throws IOException {
+        List<ProductJsonCache.CachedRow> rows = jsonCache.get(List.of(id));
+        assertEquals(1, rows.size());
+        return objectMapper.readTree(rows.get(0).json());
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.museum.service;
+
+import org.example.museum.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет подсказки {@link ProductSuggestIndex}: свертку регистра и «ё», порядок при равной частоте
+ * и списки самых частых вариантов после уменьшения частоты, удаления и обрезки пустых узлов.
+ */
+class ProductSuggestIndexTest {
+
+    private final ProductSuggestIndex index = new ProductSuggestIndex();
+
+    @Test
+    void foldsCaseAndYo() {
+        index.productSaved(product(1L, "Ёлка", null));
+        index.productSaved(product(2L, "ЕЛКА", null));
+        index.productSaved(product(3L, "  елка ", "Ёлкин"));
+
+        List<ProductSuggestIndex.Suggestion> expected = List.of(
+                new ProductSuggestIndex.Suggestion("Ёлка", 3), new ProductSuggestIndex.Suggestion("Ёлкин", 1));
+        assertEquals(expected, index.suggest("ёл", 10));
+        assertEquals(expected, index.suggest("ЕЛ", 10));
+        assertEquals(expected.subList(0, 1), index.suggest("Елка", 1));
+        assertEquals(List.of(), index.suggest("   ", 10));
+    }
+
+    @Test
+    void ranksEqualCountsAlphabetically() {
+        List<String> names = List.of("Море", "Мак", "Мост", "Мир", "Март");
+        for (int i = 0; i < names.size(); i++) {
+            index.productSaved(product((long) i, names.get(i), "Моне"));
+        }
+
+        assertEquals(List.of("Моне", "Мак", "Март", "Мир", "Море", "Мост"), texts(index.suggest("м", 10)));
+        assertEquals(List.of("Моне", "Море", "Мост"), texts(index.suggest("мо", 10)));
+        assertEquals(List.of("Моне", "Мак"), texts(index.suggest("м", 2)));
+    }
+
+    @Test
+    void restoresTopAfterDecrementAndDelete() {
+        // Двенадцать вариантов с частотами 12..1: в списке узла «к» помещаются первые десять
+        long id = 0;
+        for (int term = 0; term < 12; term++) {
+            for (int copy = 0; copy < 12 - term; copy++) {
+                index.productSaved(product(id++, "К" + (char) ('а' + term), null));
+            }
+        }
+        assertEquals(IntStream.range(0, 10).mapToObj(term -> "К" + (char) ('а' + term)).toList(), texts(index.suggest("к", 10)));
+
+        // Удаление всех вхождений «Ка» и уменьшение частоты «Кб» до одного
+        for (long removed = 0; removed < 12 + 10; removed++) {
+            index.productDeleted(removed);
+        }
+        // «Кб» и «Кл» встречаются по разу, в список попадает первый по алфавиту
+        assertEquals(List.of("Кв", "Кг", "Кд", "Ке", "Кж", "Кз", "Ки", "Кй", "Кк", "Кб"), texts(index.suggest("к", 10)));
+        assertEquals(List.of(new ProductSuggestIndex.Suggestion("Кб", 1)), index.suggest("кб", 10));
+        assertEquals(List.of(), index.suggest("ка", 10));
+
+        for (long removed = 23; removed < id; removed++) {
+            index.productDeleted(removed);
+        }
+        assertEquals(List.of("Кб"), texts(index.suggest("к", 10)));
+        index.productDeleted(22L);
+        assertEquals(List.of(), index.suggest("к", 10));
+        assertEquals(0, index.stats().get("terms"));
+        assertEquals(1, index.stats().get("nodes"));
+    }
+
+    @Test
+    void replacesSpellingOfRemovedProduct() {
+        index.productSaved(product(1L, "Ёлка", null));
+        index.productSaved(product(2L, "елка", null));
+        index.productSaved(product(1L, "Ёлка", null));
+        assertEquals(List.of(new ProductSuggestIndex.Suggestion("Ёлка", 2)), index.suggest("ел", 10));
+
+        index.productDeleted(1L);
+        assertEquals(List.of(new ProductSuggestIndex.Suggestion("елка", 1)), index.suggest("ел", 10));
+
+        index.productSaved(product(2L, "Сосна", null));
+        index.productSaved(product(3L, "ЕЛКА", null));
+        assertEquals(List.of(new ProductSuggestIndex.Suggestion("ЕЛКА", 1)), index.suggest("ел", 10));
+    }
+
+    @Test
+    void matchesFullScanAfterRandomChanges() {
+        Random random = new Random(11);
+        Map<Long, Product> catalog = new HashMap<>();
+        for (int step = 0; step < 3000; step++) {
+            long id = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                catalog.remove(id);
+                index.productDeleted(id);
+            } else {
+                Product product = product(id, randomWord(random), random.nextBoolean() ? randomWord(random) : null);
+                catalog.put(id, product);
+                index.productSaved(product);
+            }
+            if (step % 100 == 99) {
+                for (String prefix : List.of("а", "б", "е", "аб", "ба", "ее", "абе", "еба")) {
+                    assertMatchesFullScan(catalog, prefix);
+                }
+            }
+        }
+    }
+
+    /**
+     * Сравнивает подсказки с подсчетом по всем продуктам: совпадают варианты и частоты,
+     * а показанное написание принадлежит одному из оставшихся вхождений.
+     */
+    private void assertMatchesFullScan(Map<Long, Product> catalog, String prefix) {
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, List<String>> spellings = new HashMap<>();
+        for (Product product : catalog.values()) {
+            for (String text : new String[]{product.getName(), product.getArtist()}) {
+                if (text != null && ProductSuggestIndex.fold(text).startsWith(prefix)) {
+                    counts.merge(ProductSuggestIndex.fold(text), 1, Integer::sum);
+                    spellings.computeIfAbsent(ProductSuggestIndex.fold(text), key -> new ArrayList<>()).add(text.strip());
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> expected = counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(ProductSuggestIndex.MAX_SUGGESTIONS)
+                .toList();
+
+        List<ProductSuggestIndex.Suggestion> actual = index.suggest(prefix, ProductSuggestIndex.MAX_SUGGESTIONS);
+        assertEquals(expected.size(), actual.size(), prefix);
+        for (int i = 0; i < expected.size(); i++) {
+            String key = ProductSuggestIndex.fold(actual.get(i).text());
+            assertEquals(expected.get(i).getKey(), key, prefix);
+            assertEquals(expected.get(i).getValue(), actual.get(i).count(), prefix);
+            assertTrue(spellings.get(key).contains(actual.get(i).text()), actual.get(i).text());
+        }
+    }
+
+    private static String randomWord(Random random) {
+        String letters = "абеЁБА";
+        StringBuilder word = new StringBuilder();
+        for (int i = 1 + random.nextInt(3); i > 0; i--) {
+            word.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return word.toString();
+    }
+
+    private static List<String> texts(List<ProductSuggestIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestIndex.Suggestion::text).toList();
+    }
+
+    private static Product product(Long id, String name, String artist) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setArtist(artist);
+        return product;
+    }
+}